@@ -0,0 +1,76 @@
+package com.mdotm.pets.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.Species;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared inputs for the benchmarks, configured the way the running application configures them.
+ */
+final class BenchmarkFixtures {
+
+    static final String PET_REQUEST_JSON = """
+            {"name": "elli", "species": "CAT", "age": 10, "owner_name": "farooq"}
+            """;
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * An object mapper with Spring Boot's defaults, dates written as ISO-8601 strings.
+     */
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    /**
+     * A transaction manager with nothing to begin or commit, for services running on {@link InMemoryPetRepository}.
+     */
+    static PlatformTransactionManager noTransactions() {
+        return new AbstractPlatformTransactionManager() {
+
+            @Override
+            protected Object doGetTransaction() {
+                return new Object();
+            }
+
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) {
+            }
+
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+            }
+
+            @Override
+            protected void doRollback(DefaultTransactionStatus status) {
+            }
+        };
+    }
+
+    static PetDocument petDocument(long id) {
+        var species = Species.values()[(int) (id % Species.values().length)];
+        var now = Instant.parse("2025-05-14T14:48:39.635350Z").plusSeconds(id);
+        return new PetDocument(id, "pet-" + id, species, (int) (id % 20), "owner-" + (id % 97), now, now, 0L);
+    }
+
+    static List<PetDocument> petDocuments(int count) {
+        List<PetDocument> pets = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            pets.add(petDocument(id));
+        }
+        return pets;
+    }
+}
@@ -0,0 +1,174 @@
+package com.mdotm.pets.benchmark;
+
+import com.mdotm.pets.dao.PetStore;
+import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetFilter;
+import com.mdotm.pets.model.PetKey;
+import com.mdotm.pets.model.PetPatch;
+import com.mdotm.pets.model.PetPosition;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.PetVersion;
+import com.mdotm.pets.model.Species;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Map-backed stand-in for {@link PetStore}, implementing only the methods {@code PetServiceImpl} calls,
+ * so service benchmarks measure the service code rather than the database.
+ */
+final class InMemoryPetRepository implements InvocationHandler {
+
+    private final ConcurrentSkipListMap<Long, PetDocument> pets = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> naturalKeys = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    private InMemoryPetRepository() {
+    }
+
+    static PetStore create() {
+        return (PetStore) Proxy.newProxyInstance(PetStore.class.getClassLoader(),
+                new Class<?>[]{PetStore.class}, new InMemoryPetRepository());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "save", "saveAndFlush" -> save((PetDocument) args[0]);
+            case "saveAll", "saveAllAndFlush" -> saveAll((Iterable<PetDocument>) args[0]);
+            case "findById" -> Optional.ofNullable(pets.get((Long) args[0]));
+            case "findResponseById" -> Optional.ofNullable(pets.get((Long) args[0])).map(PetDocument::toPetResponse);
+            case "findResponsesByIdIn" -> ((Collection<Long>) args[0]).stream().distinct()
+                    .map(pets::get).filter(Objects::nonNull).map(PetDocument::toPetResponse).toList();
+            case "findVersionById" -> Optional.ofNullable(pets.get((Long) args[0]))
+                    .map(pet -> new PetVersion(pet.getVersion(), pet.getLastModified()));
+            case "existsById" -> pets.containsKey((Long) args[0]);
+            case "updateByIdAndVersion" -> update((Long) args[0], (Long) args[1], (String) args[2], (Species) args[3],
+                    (Integer) args[4], (String) args[5], (Instant) args[6]);
+            case "patchById" -> patch((Long) args[0], (Long) args[1], (PetPatch) args[2], (Instant) args[3]);
+            case "findAllResponses" -> findAllResponses((Pageable) args[0]);
+            case "findResponsesAfter" -> pets.tailMap((Long) args[0], false).values().stream()
+                    .limit(((Limit) args[1]).max()).map(PetDocument::toPetResponse).toList();
+            case "search" -> search((PetFilter) args[0], (PetPosition) args[1], (Limit) args[2]);
+            case "findByNaturalKeys" -> pets.values().stream()
+                    .filter(pet -> ((Collection<PetKey>) args[0]).contains(PetKey.of(pet)))
+                    .toList();
+            case "streamAll" -> pets.values().stream().map(PetDocument::toPetResponse);
+            case "delete" -> delete((PetDocument) args[0]);
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> "InMemoryPetRepository";
+            default -> throw new UnsupportedOperationException(method.getName());
+        };
+    }
+
+    private PetDocument save(PetDocument pet) {
+        if (pet.getId() == null) {
+            var key = naturalKey(pet);
+            var id = ids.incrementAndGet();
+            if (naturalKeys.putIfAbsent(key, id) != null) {
+                throw new DataIntegrityViolationException("duplicate", new ConstraintViolationException("duplicate",
+                        null, "insert", ConstraintViolationException.ConstraintKind.UNIQUE, PetDocument.NATURAL_KEY_CONSTRAINT));
+            }
+            pet.setId(id);
+            pet.setVersion(0L);
+        }
+        pets.put(pet.getId(), pet);
+        return pet;
+    }
+
+    private int update(Long id, Long version, String name, Species species, Integer age, String ownerName,
+                       Instant lastModified) {
+        var updated = new int[1];
+        pets.computeIfPresent(id, (key, pet) -> {
+            if (version != null && !version.equals(pet.getVersion())) {
+                return pet;
+            }
+            var document = new PetDocument(id, name, species, age, ownerName, pet.getCreateAt(), lastModified,
+                    pet.getVersion() + 1);
+            naturalKeys.remove(naturalKey(pet), id);
+            naturalKeys.put(naturalKey(document), id);
+            updated[0] = 1;
+            return document;
+        });
+        return updated[0];
+    }
+
+    private int patch(Long id, Long version, PetPatch patch, Instant lastModified) {
+        var pet = pets.get(id);
+        if (pet == null) {
+            return 0;
+        }
+        return update(id, version,
+                patch.name() != null ? patch.name() : pet.getName(),
+                patch.species() != null ? patch.species() : pet.getSpecies(),
+                patch.agePresent() ? patch.age() : pet.getAge(),
+                patch.ownerName() != null ? patch.ownerName() : pet.getOwnerName(),
+                lastModified);
+    }
+
+    private List<PetResponse> search(PetFilter filter, PetPosition after, Limit limit) {
+        var order = filter.order();
+        return pets.values().stream()
+                .filter(pet -> matches(filter, pet))
+                .map(PetDocument::toPetResponse)
+                .filter(pet -> after == null || PetPosition.of(order, pet).compareTo(after) > 0)
+                .sorted(Comparator.comparing(pet -> PetPosition.of(order, pet)))
+                .limit(limit.max())
+                .toList();
+    }
+
+    private static boolean matches(PetFilter filter, PetDocument pet) {
+        return (filter.species() == null || filter.species() == pet.getSpecies())
+                && (filter.ownerName() == null || filter.ownerName().equals(pet.getOwnerName()))
+                && (filter.minAge() == null || pet.getAge() != null && pet.getAge() >= filter.minAge())
+                && (filter.maxAge() == null || pet.getAge() != null && pet.getAge() <= filter.maxAge())
+                && (filter.createdFrom() == null || !pet.getCreateAt().isBefore(filter.createdFrom()))
+                && (filter.createdTo() == null || pet.getCreateAt().isBefore(filter.createdTo()))
+                && (filter.modifiedFrom() == null || !pet.getLastModified().isBefore(filter.modifiedFrom()))
+                && (filter.modifiedTo() == null || pet.getLastModified().isBefore(filter.modifiedTo()));
+    }
+
+    private List<PetDocument> saveAll(Iterable<PetDocument> documents) {
+        List<PetDocument> saved = new ArrayList<>();
+        documents.forEach(pet -> saved.add(save(pet)));
+        return saved;
+    }
+
+    private PageImpl<PetResponse> findAllResponses(Pageable pageable) {
+        var content = pets.values().stream()
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .map(PetDocument::toPetResponse)
+                .toList();
+        return new PageImpl<>(content, pageable, pets.size());
+    }
+
+    private Object delete(PetDocument pet) {
+        pets.remove(pet.getId());
+        naturalKeys.remove(naturalKey(pet), pet.getId());
+        return null;
+    }
+
+    private static String naturalKey(PetDocument pet) {
+        return pet.getName() + '\u0000' + pet.getSpecies() + '\u0000' + Objects.toString(pet.getOwnerName());
+    }
+}
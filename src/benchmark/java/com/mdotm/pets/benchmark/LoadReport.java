@@ -0,0 +1,199 @@
+package com.mdotm.pets.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of the requests of one {@link PetLoadGenerator} run, per endpoint. Latencies are measured
+ * from the time a request was due to be sent, not from the time it was sent, so a generator or server falling behind
+ * shows up in the percentiles instead of hiding the requests it delayed.
+ * <p>
+ * It also keeps the peak number of requests outstanding, as the generator saw them and, when the application runs in
+ * the same JVM, as Tomcat saw them: a thread model that queues requests shows a server peak far below the client's.
+ */
+final class LoadReport {
+
+    private static final long MAX_LATENCY = TimeUnit.MINUTES.toNanos(5);
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentSkipListMap<>();
+    private final AtomicInteger clientInFlight = new AtomicInteger();
+    private final AtomicInteger serverRequests = new AtomicInteger(-1);
+    private final AtomicInteger serverBusyThreads = new AtomicInteger(-1);
+    private final AtomicInteger serverConnections = new AtomicInteger(-1);
+
+    private static final class Endpoint {
+
+        private final Histogram latencies = new ConcurrentHistogram(1, MAX_LATENCY, 3);
+        private final LongAdder ok = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+    }
+
+    /**
+     * A row of the report. {@code shed} counts the requests refused by admission control with a 503 or 429,
+     * {@code failed} every other error status or a request that got no response at all.
+     */
+    record Summary(@JsonProperty("endpoint") String endpoint,
+                   @JsonProperty("requests") long requests,
+                   @JsonProperty("ok") long ok,
+                   @JsonProperty("shed") long shed,
+                   @JsonProperty("failed") long failed,
+                   @JsonProperty("throughput") double throughput,
+                   @JsonProperty("p50_ms") double p50,
+                   @JsonProperty("p90_ms") double p90,
+                   @JsonProperty("p99_ms") double p99,
+                   @JsonProperty("p999_ms") double p999,
+                   @JsonProperty("max_ms") double max) {
+
+        double errorRatio() {
+            return requests == 0 ? 0 : (double) (shed + failed) / requests;
+        }
+    }
+
+    /**
+     * The most requests outstanding at once during the run. The server figures are null when they could not be
+     * observed: all of them against a {@code --target}, the busy threads on virtual threads.
+     *
+     * @param clientInFlight requests sent and not answered yet
+     * @param serverRequests requests the application was handling, from its {@code http.server.requests.active} timer
+     * @param serverBusyThreads busy threads of Tomcat's request pool
+     * @param serverConnections connections open on Tomcat's connector
+     */
+    record Peaks(@JsonProperty("client_in_flight") int clientInFlight,
+                 @JsonProperty("server_requests") Integer serverRequests,
+                 @JsonProperty("server_busy_threads") Integer serverBusyThreads,
+                 @JsonProperty("server_connections") Integer serverConnections) {
+    }
+
+    /**
+     * The report as written to JSON.
+     */
+    record Report(@JsonProperty("peaks") Peaks peaks,
+                  @JsonProperty("endpoints") List<Summary> endpoints) {
+    }
+
+    /**
+     * Records a completed request.
+     *
+     * @param latency nanoseconds from when the request was due until its response, or its failure, arrived
+     * @param status the response status, or 0 if the request failed without one
+     */
+    void record(String endpoint, long latency, int status) {
+        var counters = endpoints.computeIfAbsent(endpoint, e -> new Endpoint());
+        counters.latencies.recordValue(Math.min(Math.max(latency, 1), MAX_LATENCY));
+        if (status >= 200 && status < 400) {
+            counters.ok.increment();
+        } else if (status == 503 || status == 429) {
+            counters.shed.increment();
+        } else {
+            counters.failed.increment();
+        }
+    }
+
+    /**
+     * Records the number of requests sent and not answered yet, whenever it grows.
+     */
+    void inFlight(int requests) {
+        clientInFlight.accumulateAndGet(requests, Math::max);
+    }
+
+    /**
+     * Records what the server was doing at one moment; a negative figure is one that cannot be observed.
+     */
+    void server(int requests, int busyThreads, int connections) {
+        serverRequests.accumulateAndGet(requests, Math::max);
+        serverBusyThreads.accumulateAndGet(busyThreads, Math::max);
+        serverConnections.accumulateAndGet(connections, Math::max);
+    }
+
+    Peaks peaks() {
+        return new Peaks(clientInFlight.get(), observed(serverRequests), observed(serverBusyThreads),
+                observed(serverConnections));
+    }
+
+    /**
+     * One row per endpoint, then a row of all the endpoints together named {@code total}.
+     */
+    List<Summary> summarize(Duration elapsed) {
+        var total = new Histogram(1, MAX_LATENCY, 3);
+        long ok = 0;
+        long shed = 0;
+        long failed = 0;
+        List<Summary> rows = new ArrayList<>();
+        for (var entry : endpoints.entrySet()) {
+            var endpoint = entry.getValue();
+            rows.add(summary(entry.getKey(), endpoint.latencies, endpoint.ok.sum(), endpoint.shed.sum(),
+                    endpoint.failed.sum(), elapsed));
+            total.add(endpoint.latencies);
+            ok += endpoint.ok.sum();
+            shed += endpoint.shed.sum();
+            failed += endpoint.failed.sum();
+        }
+        rows.add(summary("total", total, ok, shed, failed, elapsed));
+        return rows;
+    }
+
+    private static Summary summary(String name, Histogram latencies, long ok, long shed, long failed, Duration elapsed) {
+        var requests = ok + shed + failed;
+        return new Summary(name, requests, ok, shed, failed,
+                requests / (elapsed.toNanos() / 1e9),
+                millis(latencies.getValueAtPercentile(50)),
+                millis(latencies.getValueAtPercentile(90)),
+                millis(latencies.getValueAtPercentile(99)),
+                millis(latencies.getValueAtPercentile(99.9)),
+                millis(latencies.getMaxValue()));
+    }
+
+    static void print(Report report, PrintStream out) {
+        out.printf("%-32s %9s %8s %8s %10s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "shed", "failed", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (var row : report.endpoints()) {
+            out.printf("%-32s %9d %8d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    row.endpoint(), row.requests(), row.shed(), row.failed(), row.throughput(),
+                    row.p50(), row.p90(), row.p99(), row.p999(), row.max());
+        }
+        var peaks = report.peaks();
+        out.printf("peak in flight: %d sent, %s handled by the server, %s busy threads, %s connections%n",
+                peaks.clientInFlight(), orUnknown(peaks.serverRequests()), orUnknown(peaks.serverBusyThreads()),
+                orUnknown(peaks.serverConnections()));
+    }
+
+    static void write(Report report, Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+    }
+
+    static Report read(Path file) throws IOException {
+        return new ObjectMapper().readValue(file.toFile(), Report.class);
+    }
+
+    static String orUnknown(Integer value) {
+        return value == null ? "?" : value.toString();
+    }
+
+    private static Integer observed(AtomicInteger peak) {
+        return peak.get() < 0 ? null : peak.get();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
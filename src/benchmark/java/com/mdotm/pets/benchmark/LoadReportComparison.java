@@ -0,0 +1,77 @@
+package com.mdotm.pets.benchmark;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Compares two {@link PetLoadGenerator} reports of the same load, e.g. on platform and then on virtual threads:
+ * for each endpoint of the first report, its throughput, latency percentiles and error ratio in both runs, then the
+ * peaks of outstanding requests. Run with the two reports as arguments, the baseline first.
+ */
+public final class LoadReportComparison {
+
+    private LoadReportComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: LoadReportComparison <baseline report> <candidate report>");
+        }
+        var baseline = Path.of(args[0]);
+        var candidate = Path.of(args[1]);
+        System.out.printf("%s against %s%n", candidate, baseline);
+        compare(LoadReport.read(baseline), LoadReport.read(candidate), System.out);
+    }
+
+    static void compare(LoadReport.Report baseline, LoadReport.Report candidate, PrintStream out) {
+        Map<String, LoadReport.Summary> candidates = new LinkedHashMap<>();
+        candidate.endpoints().forEach(row -> candidates.put(row.endpoint(), row));
+        out.printf("%-32s %-10s %10s %10s %8s%n", "endpoint", "", "baseline", "candidate", "change");
+        for (var row : baseline.endpoints()) {
+            var other = candidates.get(row.endpoint());
+            if (other == null) {
+                out.printf("%-32s missing from the candidate%n", row.endpoint());
+                continue;
+            }
+            line(out, row.endpoint(), "req/s", row, other, LoadReport.Summary::throughput);
+            line(out, "", "p50 ms", row, other, LoadReport.Summary::p50);
+            line(out, "", "p99 ms", row, other, LoadReport.Summary::p99);
+            line(out, "", "p99.9 ms", row, other, LoadReport.Summary::p999);
+            line(out, "", "max ms", row, other, LoadReport.Summary::max);
+            line(out, "", "errors %", row, other, summary -> summary.errorRatio() * 100);
+        }
+        var from = baseline.peaks();
+        var to = candidate.peaks();
+        out.println("peak in flight");
+        peak(out, "sent", from, to, LoadReport.Peaks::clientInFlight);
+        peak(out, "server requests", from, to, LoadReport.Peaks::serverRequests);
+        peak(out, "busy threads", from, to, LoadReport.Peaks::serverBusyThreads);
+        peak(out, "connections", from, to, LoadReport.Peaks::serverConnections);
+    }
+
+    private static void line(PrintStream out, String endpoint, String metric, LoadReport.Summary baseline,
+                             LoadReport.Summary candidate, ToDoubleFunction<LoadReport.Summary> value) {
+        var from = value.applyAsDouble(baseline);
+        var to = value.applyAsDouble(candidate);
+        out.printf("%-32s %-10s %10.2f %10.2f %8s%n", endpoint, metric, from, to, change(from, to));
+    }
+
+    private static void peak(PrintStream out, String name, LoadReport.Peaks baseline, LoadReport.Peaks candidate,
+                             Function<LoadReport.Peaks, Integer> value) {
+        var from = value.apply(baseline);
+        var to = value.apply(candidate);
+        out.printf("  %-30s %-10s %10s %10s %8s%n", name, "", LoadReport.orUnknown(from), LoadReport.orUnknown(to),
+                from == null || to == null ? "" : change(from, to));
+    }
+
+    private static String change(double from, double to) {
+        if (from == 0) {
+            return to == 0 ? "=" : "new";
+        }
+        return String.format("%+.1f%%", (to - from) * 100 / from);
+    }
+}
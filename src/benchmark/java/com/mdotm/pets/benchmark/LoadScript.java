@@ -0,0 +1,180 @@
+package com.mdotm.pets.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.regex.Pattern;
+
+/**
+ * The requests {@link PetLoadGenerator} sends, either replayed in order from a JSONL request log or drawn at random
+ * from a weighted mix of the requests of a Postman collection.
+ * <p>
+ * Paths and bodies may contain placeholders, resolved when the request is sent:
+ * <ul>
+ *     <li>{@code {id}}: the id of a pet seeded before the run</li>
+ *     <li>{@code {deletable}}: the id of a pet nobody else reads, taken once, for deletes</li>
+ *     <li>{@code {n}}: a number unique to the request, to keep created pets apart</li>
+ * </ul>
+ */
+final class LoadScript {
+
+    static final String ID = "{id}";
+    static final String DELETABLE = "{deletable}";
+    static final String N = "{n}";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern NUMBER = Pattern.compile("/\\d+(?=/|\\?|$)");
+    private static final Pattern NAME = Pattern.compile("(\"name\"\\s*:\\s*\"[^\"]*)\"");
+
+    /**
+     * A request template; {@code endpoint} is the method and path, without query and with ids as placeholders,
+     * under which its latencies are reported.
+     */
+    record LoadRequest(String endpoint, String method, String path, Map<String, String> headers, String body,
+                       int weight) {
+    }
+
+    private final List<LoadRequest> requests;
+    private final boolean replay;
+    private final int[] cumulativeWeights;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private LoadScript(List<LoadRequest> requests, boolean replay) {
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("No requests to send");
+        }
+        this.requests = List.copyOf(requests);
+        this.replay = replay;
+        cumulativeWeights = new int[requests.size()];
+        int total = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            total += requests.get(i).weight();
+            cumulativeWeights[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("All requests have a weight of 0");
+        }
+    }
+
+    /**
+     * Reads a request log, one JSON object per line:
+     * {@code {"method": "GET", "path": "/api/v1/pets/{id}", "headers": {...}, "body": {...}}}, where only the path is
+     * required and the body may be a JSON value or a string. Blank lines and lines starting with {@code #} are skipped.
+     */
+    static LoadScript fromLog(Path log) throws IOException {
+        List<LoadRequest> requests = new ArrayList<>();
+        for (var line : Files.readAllLines(log)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            var node = MAPPER.readTree(line);
+            var method = node.path("method").asText("GET").toUpperCase();
+            var path = node.path("path").asText(null);
+            if (path == null) {
+                throw new IllegalArgumentException("No path in request log line: " + line);
+            }
+            Map<String, String> headers = new LinkedHashMap<>();
+            node.path("headers").fields().forEachRemaining(header -> headers.put(header.getKey(), header.getValue().asText()));
+            var body = node.get("body");
+            requests.add(request(method, path, headers, body == null || body.isNull() ? null
+                    : body.isTextual() ? body.asText() : MAPPER.writeValueAsString(body), 1));
+        }
+        return new LoadScript(requests, true);
+    }
+
+    /**
+     * Derives a mix from the requests of a Postman collection: numeric path segments become {@code {id}}, or
+     * {@code {deletable}} for deletes, and a {@code "name"} in the body gets a {@code -{n}} suffix so creates do not
+     * collide with each other.
+     *
+     * @param weights the weight of each request by its name in the collection, 1 for those not listed
+     */
+    static LoadScript fromPostman(Path collection, Map<String, Integer> weights) throws IOException {
+        List<LoadRequest> requests = new ArrayList<>();
+        addPostmanItems(MAPPER.readTree(collection.toFile()).path("item"), weights, requests);
+        return new LoadScript(requests, false);
+    }
+
+    private static void addPostmanItems(JsonNode items, Map<String, Integer> weights, List<LoadRequest> requests) {
+        for (var item : items) {
+            if (item.has("item")) {
+                addPostmanItems(item.get("item"), weights, requests);
+                continue;
+            }
+            var request = item.path("request");
+            var method = request.path("method").asText("GET").toUpperCase();
+            var url = request.path("url");
+            var uri = URI.create((url.isTextual() ? url.asText() : url.path("raw").asText()).trim());
+            var path = NUMBER.matcher(uri.getRawPath())
+                    .replaceAll("/" + (method.equals("DELETE") ? DELETABLE : ID));
+            if (uri.getRawQuery() != null) {
+                path += "?" + uri.getRawQuery();
+            }
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (var header : request.path("header")) {
+                if (!header.path("disabled").asBoolean(false)) {
+                    headers.put(header.path("key").asText(), header.path("value").asText());
+                }
+            }
+            var raw = request.path("body").path("raw").asText(null);
+            var body = raw == null || raw.isBlank() ? null : NAME.matcher(raw).replaceFirst("$1-{n}\"");
+            var weight = weights.getOrDefault(item.path("name").asText(), 1);
+            requests.add(request(method, path, headers, body, weight));
+        }
+    }
+
+    private static LoadRequest request(String method, String path, Map<String, String> headers, String body, int weight) {
+        if (body != null && headers.keySet().stream().noneMatch("Content-Type"::equalsIgnoreCase)) {
+            headers.put("Content-Type", "application/json");
+        }
+        var query = path.indexOf('?');
+        var endpoint = method + " " + NUMBER.matcher(query < 0 ? path : path.substring(0, query)).replaceAll("/{id}")
+                .replace(DELETABLE, ID);
+        return new LoadRequest(endpoint, method, path, Map.copyOf(headers), body, weight);
+    }
+
+    /**
+     * The request to send as the {@code sequence}th of the run: the next one of a log, or a weighted draw from a mix.
+     * Only called from the dispatching thread.
+     */
+    LoadRequest next(long sequence) {
+        if (replay) {
+            return requests.get((int) (sequence % requests.size()));
+        }
+        var draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; ; i++) {
+            if (draw < cumulativeWeights[i]) {
+                return requests.get(i);
+            }
+        }
+    }
+
+    /**
+     * The share of requests that take a {@code {deletable}} pet.
+     */
+    double deletableShare() {
+        double total = 0;
+        double deletable = 0;
+        for (var request : requests) {
+            var weight = replay ? 1 : request.weight();
+            total += weight;
+            if (request.path().contains(DELETABLE)) {
+                deletable += weight;
+            }
+        }
+        return deletable / total;
+    }
+
+    List<LoadRequest> requests() {
+        return requests;
+    }
+}
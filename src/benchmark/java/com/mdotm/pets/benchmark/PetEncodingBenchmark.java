@@ -0,0 +1,114 @@
+package com.mdotm.pets.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetResponse;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding and decoding a page of pets as JSON, CBOR and Smile, the formats {@code PetController} negotiates.
+ * {@code encodePageOnWire} also gzips the page the way response compression does and reports the page size
+ * in {@code bytes} and {@code gzipBytes}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PetEncodingBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"10", "100", "1000"})
+    private int pageSize;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private Page<PetResponse> page;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        var builder = Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ObjectMapper mapper = switch (format) {
+            case "cbor" -> builder.factory(new CBORFactory()).build();
+            case "smile" -> builder.factory(new SmileFactory()).build();
+            default -> builder.build();
+        };
+        writer = mapper.writer();
+        reader = mapper.readerFor(PetPage.class);
+        page = new PageImpl<>(BenchmarkFixtures.petDocuments(pageSize).stream().map(PetDocument::toPetResponse).toList(),
+                PageRequest.of(0, pageSize), pageSize * 10L);
+        encoded = writer.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] encodePage() throws IOException {
+        return writer.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public PetPage decodePage() throws IOException {
+        return reader.readValue(encoded);
+    }
+
+    @Benchmark
+    public byte[] encodePageOnWire(WireSize wireSize) throws IOException {
+        var bytes = writer.writeValueAsBytes(page);
+        var gzipped = new ByteArrayOutputStream(bytes.length);
+        try (var gzip = new GZIPOutputStream(gzipped)) {
+            gzip.write(bytes);
+        }
+        wireSize.bytes = bytes.length;
+        wireSize.gzipBytes = gzipped.size();
+        return gzipped.toByteArray();
+    }
+
+    /**
+     * Size of the last page encoded, uncompressed and gzipped.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireSize {
+        public long bytes;
+        public long gzipBytes;
+    }
+
+    /**
+     * The part of a page a client reads back.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record PetPage(@JsonProperty("content") List<PetResponse> content,
+                          @JsonProperty("totalElements") long totalElements) {
+    }
+}
@@ -0,0 +1,53 @@
+package com.mdotm.pets.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mdotm.pets.exception.PetAlreadyExistException;
+import com.mdotm.pets.exception.PetExceptionHandler;
+import com.mdotm.pets.exception.PetNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the error path: building the exception, the error body and its JSON.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PetExceptionHandlerBenchmark {
+
+    private PetExceptionHandler handler;
+    private ObjectWriter writer;
+
+    @Setup
+    public void setUp() {
+        handler = new PetExceptionHandler(new SimpleMeterRegistry());
+        writer = BenchmarkFixtures.objectMapper().writer();
+    }
+
+    @Benchmark
+    public ResponseEntity notFound() {
+        return handler.handleNotFound(new PetNotFoundException(String.format("Pet with id: %s not found", 42)));
+    }
+
+    @Benchmark
+    public byte[] alreadyExistSerialized() throws JsonProcessingException {
+        return writer.writeValueAsBytes(handler.handlePetAlreadyExistException(
+                new PetAlreadyExistException("Pet: elli with owner: farooq for species: CAT already exists")).getBody());
+    }
+}
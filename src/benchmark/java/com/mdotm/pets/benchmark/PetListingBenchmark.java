@@ -0,0 +1,85 @@
+package com.mdotm.pets.benchmark;
+
+import com.mdotm.pets.PetsApplication;
+import com.mdotm.pets.dao.PetRepository;
+import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listing a page through managed entities ({@code findAll} then {@code toPetResponse}, as before) versus through the
+ * {@link PetResponse} projection in a read-only transaction, against an in-memory H2 database.
+ * Run with {@code -prof gc} to get the allocation per page ({@code gc.alloc.rate.norm}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PetListingBenchmark {
+
+    private static final int PETS = 2_000;
+
+    @Param({"10", "100", "1000"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private PetRepository petRepository;
+    private TransactionTemplate readOnly;
+    private PageRequest page;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(PetsApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:listing;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--logging.level.root=WARN");
+        petRepository = context.getBean(PetRepository.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        petRepository.saveAll(BenchmarkFixtures.petDocuments(PETS).stream()
+                .peek(pet -> pet.setId(null))
+                .toList());
+        page = PageRequest.of(0, pageSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<PetResponse> entities() {
+        return petRepository.findAll(page).map(PetDocument::toPetResponse);
+    }
+
+    @Benchmark
+    public Page<PetResponse> projection() {
+        return readOnly.execute(status -> petRepository.findAllResponses(page));
+    }
+}
@@ -0,0 +1,331 @@
+package com.mdotm.pets.benchmark;
+
+import com.mdotm.pets.PetsApplication;
+import com.mdotm.pets.service.PetServiceImpl;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Open-loop load generator for the pets API: sends the requests of a {@link LoadScript} at a fixed arrival rate,
+ * whether or not earlier requests have been answered, and reports throughput and latency percentiles per endpoint.
+ * <p>
+ * Request {@code i} is due at {@code start + i / rate}, and its latency is measured from that time. When the server,
+ * or the generator itself, falls behind, the requests it delays are charged the delay, rather than being sent late
+ * and timed from then, which would hide the stall from the percentiles (coordinated omission).
+ * <p>
+ * Without {@code --target} the application is started in this JVM on an in-memory H2 database, or on the
+ * {@code mapped} storage with {@code --profiles=mapped}. Before the run it seeds {@code --pets} pets for {@code {id}}
+ * and enough further pets for the {@code {deletable}} requests. Options, all {@code --name=value}:
+ * <ul>
+ *     <li>{@code log}: a JSONL request log to replay in order, see {@link LoadScript#fromLog}</li>
+ *     <li>{@code postman}: a Postman collection to draw a mix from, when no log is given,
+ *     defaults to {@code MDotM.postman_collection.json}</li>
+ *     <li>{@code weights}: the weight of each Postman request by name, e.g. {@code get pet=8,create pet=1}</li>
+ *     <li>{@code rate}: requests per second, defaults to 200</li>
+ *     <li>{@code warmup} and {@code duration}: discarded and measured time at that rate, default {@code PT10S} and
+ *     {@code PT30S}</li>
+ *     <li>{@code max-in-flight}: requests outstanding at most, defaults to 1024</li>
+ *     <li>{@code max-p99} and {@code max-error-ratio}: the exit status is 1 if an endpoint exceeds either,
+ *     the ratio defaults to 0.01 and counts shed and failed requests</li>
+ *     <li>{@code report}: where to write the summary as JSON, defaults to {@code target/load-report.json}</li>
+ * </ul>
+ * The report also has the peak number of requests outstanding, from the generator's side and, when the application runs
+ * in this JVM, from Tomcat's: requests being handled, busy request threads and open connections, sampled every
+ * {@value #SAMPLE_INTERVAL_MILLIS} ms. {@link LoadReportComparison} compares two reports.
+ * Any other option is passed on to the embedded application.
+ */
+public final class PetLoadGenerator {
+
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final long SAMPLE_INTERVAL_MILLIS = 10;
+
+    private final LoadScript script;
+    private final String base;
+    private final double rate;
+    private final int maxInFlight;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final SplittableRandom random = new SplittableRandom(7);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Queue<Long> deletable = new ConcurrentLinkedQueue<>();
+    private List<Long> ids = List.of();
+    private Consumer<LoadReport> serverProbe = report -> {
+    };
+
+    private PetLoadGenerator(LoadScript script, String base, double rate, int maxInFlight) {
+        this.script = script;
+        this.base = base;
+        this.rate = rate;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        for (var arg : args) {
+            var equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Options are --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        var script = options.containsKey("log")
+                ? LoadScript.fromLog(Path.of(options.remove("log")))
+                : LoadScript.fromPostman(Path.of(options.getOrDefault("postman", "MDotM.postman_collection.json")),
+                weights(options.getOrDefault("weights", "")));
+        options.remove("postman");
+        options.remove("weights");
+        var rate = Double.parseDouble(options.getOrDefault("rate", "200"));
+        var warmup = Duration.parse(options.getOrDefault("warmup", "PT10S"));
+        var duration = Duration.parse(options.getOrDefault("duration", "PT30S"));
+        var maxInFlight = Integer.parseInt(options.getOrDefault("max-in-flight", "1024"));
+        var pets = Integer.parseInt(options.getOrDefault("pets", "1000"));
+        var maxP99 = options.containsKey("max-p99") ? Duration.parse(options.get("max-p99")) : null;
+        var maxErrorRatio = Double.parseDouble(options.getOrDefault("max-error-ratio", "0.01"));
+        var report = Path.of(options.getOrDefault("report", "target/load-report.json"));
+        var target = options.get("target");
+        var profiles = options.getOrDefault("profiles", "");
+        for (var name : List.of("rate", "warmup", "duration", "max-in-flight", "pets", "max-p99", "max-error-ratio",
+                "report", "target", "profiles")) {
+            options.remove(name);
+        }
+        options.forEach((name, value) -> applicationArgs.add("--" + name + "=" + value));
+
+        ConfigurableApplicationContext context = null;
+        Path data = null;
+        int status;
+        try {
+            if (target == null) {
+                data = Files.createTempDirectory("pets-load");
+                context = start(profiles, data, applicationArgs);
+                target = "http://127.0.0.1:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            }
+            var generator = new PetLoadGenerator(script, target, rate, maxInFlight);
+            if (context != null) {
+                generator.serverProbe = serverProbe(context);
+            }
+            var deletes = (int) Math.ceil(rate * (warmup.toNanos() + duration.toNanos()) / 1e9 * script.deletableShare() * 1.1);
+            generator.seed(pets, deletes);
+
+            System.out.printf("Sending %.0f requests/s to %s: %s warm-up, then %s measured%n", rate, target, warmup, duration);
+            generator.run(warmup, new LoadReport());
+            var measured = new LoadReport();
+            generator.run(duration, measured);
+            var result = new LoadReport.Report(measured.peaks(), measured.summarize(duration));
+            LoadReport.print(result, System.out);
+            LoadReport.write(result, report);
+            System.out.println("Report written to " + report);
+            status = gate(result.endpoints(), maxP99, maxErrorRatio) ? 0 : 1;
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            if (data != null) {
+                try (var files = Files.walk(data)) {
+                    for (var file : files.sorted((a, b) -> b.compareTo(a)).toList()) {
+                        Files.delete(file);
+                    }
+                }
+            }
+        }
+        System.exit(status);
+    }
+
+    private static Map<String, Integer> weights(String weights) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (var weight : weights.split(",")) {
+            var equals = weight.lastIndexOf('=');
+            if (equals > 0) {
+                result.put(weight.substring(0, equals).trim(), Integer.parseInt(weight.substring(equals + 1).trim()));
+            }
+        }
+        return result;
+    }
+
+    private static ConfigurableApplicationContext start(String profiles, Path data, List<String> applicationArgs) {
+        List<String> args = new ArrayList<>(List.of("--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:load;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--pets.mapped.path=" + data.resolve("pets.log"),
+                "--logging.level.root=WARN"));
+        args.addAll(applicationArgs);
+        return new SpringApplicationBuilder(PetsApplication.class)
+                .profiles(profiles.isBlank() ? new String[0] : profiles.split(","))
+                .run(args.toArray(String[]::new));
+    }
+
+    /**
+     * Samples what the embedded application is doing: requests in its {@code http.server.requests.active} timer, then
+     * Tomcat's busy request threads, unless it runs on virtual threads, and open connections.
+     */
+    private static Consumer<LoadReport> serverProbe(ConfigurableApplicationContext context) {
+        var registry = context.getBean(MeterRegistry.class);
+        var protocol = ((WebServerApplicationContext) context).getWebServer() instanceof TomcatWebServer tomcat
+                && tomcat.getTomcat().getConnector().getProtocolHandler() instanceof AbstractProtocol<?> handler
+                ? handler : null;
+        return report -> {
+            var requests = registry.find("http.server.requests.active").longTaskTimers().stream()
+                    .mapToInt(LongTaskTimer::activeTasks)
+                    .sum();
+            var busyThreads = protocol != null && protocol.getExecutor() instanceof ThreadPoolExecutor pool
+                    ? pool.getActiveCount() : -1;
+            var connections = protocol != null ? (int) protocol.getConnectionCount() : -1;
+            report.server(requests, busyThreads, connections);
+        };
+    }
+
+    /**
+     * Creates the pets the requests refer to, through the batch endpoint, under an owner of this run.
+     */
+    private void seed(int pets, int deletes) throws IOException, InterruptedException {
+        var owner = "load-" + UUID.randomUUID();
+        List<Long> created = new ArrayList<>();
+        for (int from = 0; from < pets + deletes; from += PetServiceImpl.MAX_BATCH_SIZE) {
+            var body = IntStream.range(from, Math.min(from + PetServiceImpl.MAX_BATCH_SIZE, pets + deletes))
+                    .mapToObj(i -> String.format("{\"name\":\"seed-%s\",\"species\":\"DOG\",\"age\":3,\"owner_name\":\"%s\"}", i, owner))
+                    .collect(Collectors.joining(",", "[", "]"));
+            var response = client.send(HttpRequest.newBuilder(URI.create(base + "/api/v1/pets/batch"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() >= 400) {
+                throw new IllegalStateException("Seeding answered " + response.statusCode() + ": " + response.body());
+            }
+            var matcher = ID.matcher(response.body());
+            while (matcher.find()) {
+                created.add(Long.parseLong(matcher.group(1)));
+            }
+        }
+        if (created.size() < pets + deletes) {
+            throw new IllegalStateException("Seeded " + created.size() + " of " + (pets + deletes) + " pets");
+        }
+        ids = List.copyOf(created.subList(0, pets));
+        deletable.addAll(created.subList(pets, created.size()));
+    }
+
+    /**
+     * Sends requests at the arrival rate for {@code duration}, then waits for the outstanding ones, sampling the
+     * server all along.
+     */
+    private void run(Duration duration, LoadReport report) throws InterruptedException {
+        var sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> serverProbe.accept(report), 0, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            send(duration, report);
+        } finally {
+            sampler.shutdownNow();
+        }
+    }
+
+    private void send(Duration duration, LoadReport report) throws InterruptedException {
+        var inFlight = new Semaphore(maxInFlight);
+        var interval = 1e9 / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * interval);
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            var template = script.next(i);
+            var request = resolve(template);
+            if (request == null) {
+                report.record(template.endpoint(), System.nanoTime() - due, 0);
+                continue;
+            }
+            // waiting here delays later requests, which their latency accounts for as they are timed from when due
+            inFlight.acquire();
+            report.inFlight(maxInFlight - inFlight.availablePermits());
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        report.record(template.endpoint(), System.nanoTime() - due, response == null ? 0 : response.statusCode());
+                        inFlight.release();
+                    });
+        }
+        if (!inFlight.tryAcquire(maxInFlight, REQUEST_TIMEOUT.toSeconds() + 5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Requests still outstanding after the run");
+        }
+    }
+
+    /**
+     * Fills in the placeholders of a request, or returns null when no pet is left to delete.
+     */
+    private HttpRequest resolve(LoadScript.LoadRequest template) {
+        var path = template.path();
+        if (path.contains(LoadScript.DELETABLE)) {
+            var id = deletable.poll();
+            if (id == null) {
+                return null;
+            }
+            path = path.replace(LoadScript.DELETABLE, id.toString());
+        }
+        var n = Long.toString(sequence.incrementAndGet());
+        var id = ids.get(random.nextInt(ids.size())).toString();
+        path = path.replace(LoadScript.ID, id).replace(LoadScript.N, n);
+        var body = template.body() == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(template.body().replace(LoadScript.ID, id).replace(LoadScript.N, n));
+        var builder = HttpRequest.newBuilder(URI.create(base + path))
+                .timeout(REQUEST_TIMEOUT)
+                .method(template.method(), body);
+        template.headers().forEach(builder::header);
+        return builder.build();
+    }
+
+    private static boolean gate(List<LoadReport.Summary> rows, Duration maxP99, double maxErrorRatio) {
+        var passed = true;
+        for (var row : rows) {
+            if (maxP99 != null && row.p99() > maxP99.toNanos() / 1e6) {
+                System.err.printf("FAILED: %s p99 of %.2f ms is over %s%n", row.endpoint(), row.p99(), maxP99);
+                passed = false;
+            }
+            if (row.errorRatio() > maxErrorRatio) {
+                System.err.printf("FAILED: %s error ratio of %.4f is over %s%n", row.endpoint(), row.errorRatio(), maxErrorRatio);
+                passed = false;
+            }
+        }
+        return passed;
+    }
+}
@@ -0,0 +1,50 @@
+package com.mdotm.pets.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.mdotm.pets.model.PetRequest;
+import com.mdotm.pets.model.Species;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a create/update request body into a validated {@link PetRequest}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PetRequestBenchmark {
+
+    private ObjectReader reader;
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        reader = BenchmarkFixtures.objectMapper().readerFor(PetRequest.class);
+        body = BenchmarkFixtures.PET_REQUEST_JSON.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public PetRequest deserializeAndValidate() throws IOException {
+        return reader.readValue(body);
+    }
+
+    @Benchmark
+    public PetRequest validate() {
+        return new PetRequest("elli", Species.CAT, 10, "farooq");
+    }
+}
@@ -0,0 +1,74 @@
+package com.mdotm.pets.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of mapping entities to {@link PetResponse}s and of serializing single pets and pages of pets.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PetResponseBenchmark {
+
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private ObjectWriter writer;
+    private PetDocument document;
+    private PetResponse response;
+    private List<PetDocument> documents;
+    private Page<PetResponse> page;
+
+    @Setup
+    public void setUp() {
+        writer = BenchmarkFixtures.objectMapper().writer();
+        document = BenchmarkFixtures.petDocument(1);
+        response = document.toPetResponse();
+        documents = BenchmarkFixtures.petDocuments(pageSize);
+        page = new PageImpl<>(documents.stream().map(PetDocument::toPetResponse).toList(),
+                PageRequest.of(0, pageSize), pageSize * 10L);
+    }
+
+    @Benchmark
+    public PetResponse toPetResponse() {
+        return document.toPetResponse();
+    }
+
+    @Benchmark
+    public Page<PetResponse> mapPage() {
+        return new PageImpl<>(documents, PageRequest.of(0, pageSize), pageSize * 10L).map(PetDocument::toPetResponse);
+    }
+
+    @Benchmark
+    public byte[] serializePet() throws JsonProcessingException {
+        return writer.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return writer.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,75 @@
+package com.mdotm.pets.benchmark;
+
+import com.mdotm.pets.model.PetPatch;
+import com.mdotm.pets.model.PetRequest;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.Species;
+import com.mdotm.pets.service.PetServiceImpl;
+import com.mdotm.pets.service.PetStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@link PetServiceImpl} methods on top of an in-memory repository, without caching or transactions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PetServiceBenchmark {
+
+    private static final int PETS = 1_000;
+
+    private PetServiceImpl petService;
+    private long nextName;
+
+    @Setup
+    public void setUp() {
+        var repository = InMemoryPetRepository.create();
+        petService = new PetServiceImpl(repository, new NoOpCacheManager(), new PetStats(repository, 10), null,
+                BenchmarkFixtures.noTransactions());
+        for (int i = 0; i < PETS; i++) {
+            petService.createPet(new PetRequest("seed-" + i, Species.DOG, i % 15, "owner-" + (i % 97)));
+        }
+    }
+
+    @Benchmark
+    public PetResponse getPet() {
+        return petService.getPet(PETS / 2L);
+    }
+
+    @Benchmark
+    public Page<PetResponse> getAllPets() {
+        return petService.getAllPets(PageRequest.of(10, 10));
+    }
+
+    @Benchmark
+    public PetResponse createPet() {
+        return petService.createPet(new PetRequest("bench-" + nextName++, Species.CAT, 3, "owner"));
+    }
+
+    @Benchmark
+    public PetResponse updatePet() {
+        return petService.updatePet(PETS / 2L, new PetRequest("renamed", Species.CAT, 4, "owner"), null);
+    }
+
+    @Benchmark
+    public PetResponse patchPet() {
+        return petService.patchPet(PETS / 2L, new PetPatch(null, null, 5, true, null), null);
+    }
+}
@@ -0,0 +1,125 @@
+package com.mdotm.pets.benchmark;
+
+import com.mdotm.pets.PetsApplication;
+import com.mdotm.pets.dao.PetRepository;
+import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.mdotm.pets.model.Species.DOG;
+
+/**
+ * Load test of the blocking API ({@code servlet}, Tomcat and JDBC) against the non-blocking one ({@code reactive},
+ * Netty and R2DBC), over HTTP against an in-memory H2 database. Each invocation sends {@value #REQUESTS} requests
+ * with up to {@code concurrency} of them in flight, so the score is requests per second.
+ * The pets cache is disabled, so both stacks do the same database work per request; the difference is in how many
+ * threads serve the requests and how they wait for the database.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PetStackBenchmark {
+
+    private static final int PETS = 1_000;
+    private static final int REQUESTS = 512;
+
+    @Param({"servlet", "reactive"})
+    private String stack;
+
+    @Param({"16", "256"})
+    private int concurrency;
+
+    private ConfigurableApplicationContext context;
+    private WebClient client;
+    private List<Long> ids;
+    private final AtomicLong created = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(PetsApplication.class)
+                .profiles(stack.equals("reactive") ? new String[]{"reactive"} : new String[0])
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:stack;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.r2dbc.url=r2dbc:h2:mem:///stack;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.r2dbc.username=sa",
+                        "--spring.r2dbc.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.cache.type=none",
+                        "--logging.level.root=WARN");
+        var petRepository = context.getBean(PetRepository.class);
+        ids = petRepository.saveAll(BenchmarkFixtures.petDocuments(PETS).stream()
+                        .peek(pet -> pet.setId(null))
+                        .toList())
+                .stream()
+                .map(PetDocument::getId)
+                .toList();
+        var port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        client = WebClient.create("http://127.0.0.1:" + port + "/api/v1/pets");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public Long getPet() {
+        return Flux.range(0, REQUESTS)
+                .flatMap(i -> client.get().uri("/{id}", ids.get(i % ids.size()))
+                        .retrieve()
+                        .toBodilessEntity(), concurrency)
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public Long createPet() {
+        return Flux.range(0, REQUESTS)
+                .flatMap(i -> client.post()
+                        .bodyValue(new PetRequest("pet-" + created.incrementAndGet(), DOG, 3, "owner"))
+                        .retrieve()
+                        .toBodilessEntity(), concurrency)
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public Long scroll() {
+        return Flux.range(0, REQUESTS)
+                .flatMap(i -> client.get().uri("/scroll?size=50")
+                        .retrieve()
+                        .toBodilessEntity(), concurrency)
+                .count()
+                .block();
+    }
+}
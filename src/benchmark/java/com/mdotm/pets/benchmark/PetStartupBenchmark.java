@@ -0,0 +1,269 @@
+package com.mdotm.pets.benchmark;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Startup of the packaged application, launched as a separate JVM on the {@code mapped} embedded storage, with:
+ * <ul>
+ *     <li>{@code jit}: the plain jar</li>
+ *     <li>{@code warmup}: the plain jar with {@code pets.warmup.enabled}</li>
+ *     <li>{@code aot-cds}: AOT-processed beans and the class data sharing archive</li>
+ *     <li>{@code aot-cds-warmup}: both</li>
+ * </ul>
+ * Each invocation starts the JVM, waits for the readiness probe and a first request, then runs
+ * {@value #CLIENTS} clients in a closed loop of get, list and create requests for {@value #LOAD_SECONDS}s,
+ * recording the latency of each request into one-second windows.
+ * <p>
+ * The score is the time of the whole invocation; the figures of interest are the counters:
+ * {@code firstRequestMillis} from launch to the first answered request, {@code steadyStateMillis} from launch to
+ * the start of the first window from which the p99 of every window stays within {@value #STEADY_TOLERANCE} times the
+ * p99 of the last third of the run, {@code steadyP99Micros} that final p99 and {@code firstWindowP99Micros} the p99
+ * of the first window.
+ * <p>
+ * Needs the output of {@code mvn -Pfast-startup -Dfast-startup.profiles=mapped -DskipTests package}:
+ * the AOT beans must be generated for the profile the benchmark runs.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PetStartupBenchmark {
+
+    private static final Path FAST_STARTUP = Path.of("target", "fast-startup");
+    private static final int CLIENTS = 4;
+    private static final int LOAD_SECONDS = 30;
+    private static final double STEADY_TOLERANCE = 1.5;
+    private static final int SEED_PETS = 100;
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(3);
+
+    @Param({"jit", "warmup", "aot-cds", "aot-cds-warmup"})
+    private String launch;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    private final AtomicLong created = new AtomicLong();
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Startup {
+
+        public long firstRequestMillis;
+        public long steadyStateMillis;
+        public long steadyP99Micros;
+        public long firstWindowP99Micros;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            firstRequestMillis = 0;
+            steadyStateMillis = 0;
+            steadyP99Micros = 0;
+            firstWindowP99Micros = 0;
+        }
+    }
+
+    @Benchmark
+    public void startup(Startup startup) throws Exception {
+        var data = Files.createTempDirectory("pets-startup");
+        int port;
+        try (var socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        var base = "http://127.0.0.1:" + port;
+        long launched = System.nanoTime();
+        var process = new ProcessBuilder(command(port, data))
+                .redirectErrorStream(true)
+                .redirectOutput(data.resolve("pets.out").toFile())
+                .start();
+        try {
+            awaitReady(base, process);
+            send(HttpRequest.newBuilder(URI.create(base + "/api/v1/pets/scroll?size=1")).build());
+            startup.firstRequestMillis = millisSince(launched);
+
+            var ids = seed(base);
+            long loadStart = System.nanoTime();
+            var windows = load(base, ids, loadStart);
+            var lastThird = new Histogram(3);
+            for (int i = windows.size() * 2 / 3; i < windows.size(); i++) {
+                lastThird.add(windows.get(i));
+            }
+            long steadyP99 = lastThird.getValueAtPercentile(99);
+            int steadyWindow = windows.size() - 1;
+            while (steadyWindow > 0 && windows.get(steadyWindow - 1).getValueAtPercentile(99) <= STEADY_TOLERANCE * steadyP99) {
+                steadyWindow--;
+            }
+            startup.steadyStateMillis = TimeUnit.NANOSECONDS.toMillis(loadStart - launched) + steadyWindow * 1000L;
+            startup.steadyP99Micros = TimeUnit.NANOSECONDS.toMicros(steadyP99);
+            startup.firstWindowP99Micros = TimeUnit.NANOSECONDS.toMicros(windows.get(0).getValueAtPercentile(99));
+        } finally {
+            process.destroy();
+            process.waitFor(30, TimeUnit.SECONDS);
+            try (var files = Files.walk(data)) {
+                for (var file : files.sorted((a, b) -> b.compareTo(a)).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private List<String> command(int port, Path data) throws IOException {
+        var jar = findJar();
+        List<String> command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        if (launch.startsWith("aot-cds")) {
+            var archive = FAST_STARTUP.resolve("pets.jsa");
+            if (!Files.exists(archive)) {
+                throw new IllegalStateException("No CDS archive at " + archive + ", build with -Pfast-startup");
+            }
+            command.add("-XX:SharedArchiveFile=" + archive);
+            command.add("-Dspring.aot.enabled=true");
+        }
+        command.addAll(List.of("-jar", jar.toString(),
+                "--spring.profiles.active=mapped",
+                "--pets.mapped.path=" + data.resolve("pets.log"),
+                "--server.port=" + port,
+                "--management.endpoint.health.probes.enabled=true",
+                "--logging.level.root=WARN"));
+        if (launch.endsWith("warmup")) {
+            command.add("--pets.warmup.enabled=true");
+        }
+        return command;
+    }
+
+    private static Path findJar() throws IOException {
+        if (!Files.isDirectory(FAST_STARTUP)) {
+            throw new IllegalStateException("No " + FAST_STARTUP + ", build with -Pfast-startup");
+        }
+        try (var files = Files.list(FAST_STARTUP)) {
+            return files.filter(file -> file.toString().endsWith(".jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No jar in " + FAST_STARTUP));
+        }
+    }
+
+    private void awaitReady(String base, Process process) throws InterruptedException {
+        var readiness = HttpRequest.newBuilder(URI.create(base + "/actuator/health/readiness")).build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (true) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with " + process.exitValue());
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Application not ready after " + STARTUP_TIMEOUT);
+            }
+            try {
+                if (client.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private List<Long> seed(String base) throws IOException, InterruptedException {
+        var body = IntStream.range(0, SEED_PETS)
+                .mapToObj(i -> String.format("{\"name\":\"seed-%s\",\"species\":\"DOG\",\"age\":3,\"owner_name\":\"startup\"}", i))
+                .collect(Collectors.joining(",", "[", "]"));
+        var response = send(HttpRequest.newBuilder(URI.create(base + "/api/v1/pets/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build());
+        List<Long> ids = new ArrayList<>();
+        var matcher = Pattern.compile("\"id\":(\\d+)").matcher(response);
+        while (matcher.find()) {
+            ids.add(Long.parseLong(matcher.group(1)));
+        }
+        return ids;
+    }
+
+    /**
+     * Runs the clients for {@value #LOAD_SECONDS}s and returns the latencies per one-second window, in nanoseconds.
+     */
+    private List<Histogram> load(String base, List<Long> ids, long loadStart) throws InterruptedException {
+        List<Histogram> windows = new ArrayList<>();
+        for (int i = 0; i < LOAD_SECONDS; i++) {
+            windows.add(new ConcurrentHistogram(3));
+        }
+        long end = loadStart + TimeUnit.SECONDS.toNanos(LOAD_SECONDS);
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        for (int c = 0; c < CLIENTS; c++) {
+            clients.submit(() -> {
+                long request = 0;
+                long start;
+                while ((start = System.nanoTime()) < end) {
+                    send(request(base, ids, request++));
+                    windows.get((int) ((start - loadStart) / 1_000_000_000L)).recordValue(System.nanoTime() - start);
+                }
+                return null;
+            });
+        }
+        clients.shutdown();
+        if (!clients.awaitTermination(LOAD_SECONDS + 30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Load did not finish");
+        }
+        return windows;
+    }
+
+    /**
+     * 8 gets by id for 1 page and 1 create.
+     */
+    private HttpRequest request(String base, List<Long> ids, long request) {
+        return switch ((int) (request % 10)) {
+            case 8 -> HttpRequest.newBuilder(URI.create(base + "/api/v1/pets?page=0&size=20")).build();
+            case 9 -> HttpRequest.newBuilder(URI.create(base + "/api/v1/pets"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(String.format(
+                            "{\"name\":\"pet-%s\",\"species\":\"CAT\",\"age\":2,\"owner_name\":\"startup\"}",
+                            created.incrementAndGet())))
+                    .build();
+            default -> HttpRequest.newBuilder(URI.create(base + "/api/v1/pets/" + ids.get((int) (request % ids.size()))))
+                    .build();
+        };
+    }
+
+    private String send(HttpRequest request) throws IOException, InterruptedException {
+        var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException(request.uri() + " answered " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private static long millisSince(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,116 @@
+package com.mdotm.pets.benchmark;
+
+import com.mdotm.pets.PetsApplication;
+import com.mdotm.pets.dao.PetStore;
+import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetRequest;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.PetSliceResponse;
+import com.mdotm.pets.service.PetService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.mdotm.pets.model.Species.DOG;
+
+/**
+ * Latency of the service on the JPA repository, against an in-memory H2 database, versus on the embedded
+ * memory-mapped log of the {@code mapped} profile. The pets cache is disabled so every call reaches the storage.
+ * H2 runs in-process, so the JPA figures leave out the network round trips a MySQL server adds to them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PetStorageBenchmark {
+
+    private static final int PETS = 10_000;
+
+    @Param({"jpa", "mapped"})
+    private String storage;
+
+    private ConfigurableApplicationContext context;
+    private PetService petService;
+    private Path directory;
+    private List<Long> ids;
+    private final AtomicLong operations = new AtomicLong();
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("pets-storage");
+        context = new SpringApplicationBuilder(PetsApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(storage.equals("mapped") ? new String[]{"mapped"} : new String[0])
+                .run("--spring.datasource.url=jdbc:h2:mem:storage;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--pets.mapped.path=" + directory.resolve("pets.log"),
+                        "--spring.cache.type=none",
+                        "--logging.level.root=WARN");
+        petService = context.getBean(PetService.class);
+        ids = context.getBean(PetStore.class).saveAllAndFlush(BenchmarkFixtures.petDocuments(PETS).stream()
+                        .peek(pet -> pet.setId(null))
+                        .toList())
+                .stream()
+                .map(PetDocument::getId)
+                .toList();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        try (var files = Files.list(directory)) {
+            for (var file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public PetResponse getPet() {
+        return petService.getPet(nextId());
+    }
+
+    @Benchmark
+    public PetResponse createPet() {
+        return petService.createPet(new PetRequest("pet-" + operations.incrementAndGet(), DOG, 3, "owner"));
+    }
+
+    @Benchmark
+    public PetResponse updatePet() {
+        return petService.updatePet(nextId(), new PetRequest("pet-" + operations.incrementAndGet(), DOG, 4, "updater"), null);
+    }
+
+    @Benchmark
+    public PetSliceResponse scroll() {
+        return petService.getPetsAfter(null, 50);
+    }
+
+    private Long nextId() {
+        return ids.get((int) (operations.incrementAndGet() % ids.size()));
+    }
+}
@@ -1,33 +1,83 @@
 package com.mdotm.pets.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mdotm.pets.config.BinaryFormatConfig;
+import com.mdotm.pets.model.PetBatchResult;
+import com.mdotm.pets.model.PetFilter;
+import com.mdotm.pets.model.PetImportReport;
+import com.mdotm.pets.model.PetLookupResponse;
+import com.mdotm.pets.model.PetPatch;
 import com.mdotm.pets.model.PetRequest;
 import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.PetSliceResponse;
+import com.mdotm.pets.model.PetStatsResponse;
+import com.mdotm.pets.model.Species;
+import com.mdotm.pets.service.PetImporter;
 import com.mdotm.pets.service.PetService;
 import jakarta.annotation.Nonnull;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The pets API. Responses, errors included, are written as JSON, CBOR or Smile depending on {@code Accept},
+ * JSON being the default, see {@link BinaryFormatConfig}.
+ */
 @RestController
-@RequestMapping("/api/v1/pets")
+@Profile("!reactive")
+@RequestMapping(value = "/api/v1/pets",
+        produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryFormatConfig.APPLICATION_SMILE_VALUE})
 public class PetController {
 
     private final int DEFAULT_PAGE = 0;
     private final int DEFAULT_PAGE_SIZE = 10;
+    private final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    private final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
 
     private final PetService petService;
+    private final PetImporter petImporter;
+    private final ObjectMapper objectMapper;
+    private final PetResponseCache responseCache;
+    private final Duration exportTimeout;
 
-    public PetController(PetService petService) {
+    public PetController(PetService petService, PetImporter petImporter, ObjectMapper objectMapper,
+                         PetResponseCache responseCache, @Value("${pets.export.timeout:PT1H}") Duration exportTimeout) {
         this.petService = petService;
+        this.petImporter = petImporter;
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
+        this.exportTimeout = exportTimeout;
     }
 
     /**
@@ -36,43 +86,230 @@ public class PetController {
      * @param pet the pet object to create
      * @return the created pet
      */
-    @PostMapping(produces = "application/json")
+    @PostMapping
     public ResponseEntity<PetResponse> createPet(@RequestBody @Nonnull PetRequest pet) {
         return ResponseEntity.ok(petService.createPet(pet));
     }
 
     /**
-     * Retrieves a pet by its ID.
+     * Creates several pets in one request.
+     *
+     * @param pets the pet objects to create
+     * @return one result per pet, in request order, holding either the created pet or the reason it was rejected
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<PetBatchResult>> createPets(@RequestBody @Nonnull List<PetRequest> pets) {
+        return ResponseEntity.ok(petService.createPets(pets));
+    }
+
+    /**
+     * Imports pets from a newline-delimited JSON body, one pet per line.
+     * The body is read incrementally and committed in chunks, so it is never buffered in full.
+     *
+     * @param body the NDJSON request body
+     * @param chunkSize the number of pets committed per transaction, defaults to {@code pets.import.chunk-size}
+     * @return the import report with counts, rate and per-line errors
+     * @throws IOException if reading the request body fails
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<PetImportReport> importPets(InputStream body,
+                                                      @RequestParam(value = "chunk_size", required = false) Integer chunkSize) throws IOException {
+        return ResponseEntity.ok(petImporter.importPets(body, chunkSize));
+    }
+
+    /**
+     * Retrieves a pet by its ID, with {@code ETag} and {@code Last-Modified} headers. The tag differs per encoding,
+     * see {@link PetETags}.
+     * A conditional request ({@code If-None-Match} / {@code If-Modified-Since}) for an unchanged pet is answered with
+     * 304 Not Modified after looking up the version only, without fetching or serializing the pet.
+     * The body is served from the {@link PetResponseCache} when this version of the pet was encoded before.
      *
      * @param id the ID of the pet
-     * @return the pet details
+     * @param request the current request, for its conditional headers
+     * @return the encoded pet details, or 304 Not Modified
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<byte[]> getPet(@PathVariable Long id, HttpServletRequest request) {
+        var contentType = responseCache.negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null) {
+            var version = petService.getPetVersion(id);
+            var eTag = PetETags.forPet(id, version.version(), contentType);
+            // evaluated against the request only, the response headers are set by the returned entity
+            if (new ServletWebRequest(request).checkNotModified(eTag, version.lastModified().toEpochMilli())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).lastModified(version.lastModified()).build();
+            }
+        }
+        var pet = petService.getPet(id);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .eTag(PetETags.forPet(pet, contentType))
+                .lastModified(pet.lastModified())
+                .body(responseCache.encode(pet, contentType));
+    }
+
+    /**
+     * Retrieves several pets by ID in one request, e.g. {@code ?ids=1,2,3}.
+     * Pets are served from the pets cache where possible and the rest read with a single query.
+     *
+     * @param ids the pet IDs, at most {@link com.mdotm.pets.service.PetServiceImpl#MAX_LOOKUP_SIZE}
+     * @return the pets found, in request order, and the IDs that have no pet
      */
-    @GetMapping(value = "/{id}", produces = "application/json")
-    public ResponseEntity<PetResponse> getPet(@PathVariable Long id) {
-        return ResponseEntity.ok(petService.getPet(id));
+    @GetMapping(params = "ids")
+    public ResponseEntity<PetLookupResponse> getPets(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(petService.getPets(ids));
     }
 
     /**
      * Retrieves all pets with pagination.
+     * The response carries a weak {@code ETag} over the page content, so a matching {@code If-None-Match} gets a 304,
+     * and the latest modification time of its pets as {@code Last-Modified}.
      *
      * @param pageable pagination and sorting parameters
      * @return a page of pet responses
      */
-    @GetMapping(produces = "application/json")
+    @GetMapping
     public ResponseEntity<Page<PetResponse>> getAllPets(@PageableDefault(page = DEFAULT_PAGE, size = DEFAULT_PAGE_SIZE) Pageable pageable) {
-        return ResponseEntity.ok(petService.getAllPets(pageable));
+        var page = petService.getAllPets(pageable);
+        return okWithLastModified(page.getContent()).eTag(PetETags.forPage(page)).body(page);
+    }
+
+    /**
+     * Retrieves pets ordered by id using keyset pagination, without a total count.
+     * Carries a weak {@code ETag} and a {@code Last-Modified} header like {@link #getAllPets}.
+     *
+     * @param cursor the {@code next} token returned by the previous call, absent for the first slice
+     * @param size the maximum number of pets to return
+     * @return a slice of pet responses with the cursor of the following slice
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<PetSliceResponse> scrollPets(@RequestParam(required = false) String cursor,
+                                                       @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        var slice = petService.getPetsAfter(cursor, size);
+        return okWithLastModified(slice.content()).eTag(PetETags.forSlice(slice)).body(slice);
+    }
+
+    /**
+     * Returns the total number of pets, the number per species and the owners with the most pets.
+     * Served from counters maintained by the write operations, without counting the table.
+     *
+     * @return the pet statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<PetStatsResponse> getStats() {
+        return ResponseEntity.ok(petService.getStats());
+    }
+
+    /**
+     * Searches pets by species, owner, age range and creation/modification time range, paginated by keyset like
+     * {@link #scrollPets}. A search must include a species, an owner or a time bound, so that it is always served by
+     * an index, and pets come in the order of that index, see {@link PetFilter}.
+     *
+     * @param species the species to match
+     * @param ownerName the owner to match
+     * @param minAge the minimum age, inclusive
+     * @param maxAge the maximum age, inclusive
+     * @param createdFrom the earliest creation time, inclusive
+     * @param createdTo the latest creation time, exclusive
+     * @param modifiedFrom the earliest modification time, inclusive
+     * @param modifiedTo the latest modification time, exclusive
+     * @param cursor the {@code next} token returned by the previous call, absent for the first slice
+     * @param size the maximum number of pets to return
+     * @return a slice of matching pets with the cursor of the following slice
+     */
+    @GetMapping("/search")
+    public ResponseEntity<PetSliceResponse> searchPets(@RequestParam(required = false) Species species,
+                                                       @RequestParam(value = "owner_name", required = false) String ownerName,
+                                                       @RequestParam(value = "min_age", required = false) Integer minAge,
+                                                       @RequestParam(value = "max_age", required = false) Integer maxAge,
+                                                       @RequestParam(value = "created_from", required = false) Instant createdFrom,
+                                                       @RequestParam(value = "created_to", required = false) Instant createdTo,
+                                                       @RequestParam(value = "modified_from", required = false) Instant modifiedFrom,
+                                                       @RequestParam(value = "modified_to", required = false) Instant modifiedTo,
+                                                       @RequestParam(required = false) String cursor,
+                                                       @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        var filter = new PetFilter(species, ownerName, minAge, maxAge, createdFrom, createdTo, modifiedFrom, modifiedTo);
+        var slice = petService.searchPets(filter, cursor, size);
+        return ResponseEntity.ok().eTag(PetETags.forSlice(slice)).body(slice);
+    }
+
+    /**
+     * Exports every pet as newline-delimited JSON, one pet per line, ordered by id.
+     * Rows are written to the response as they are read from the database, so memory use stays flat
+     * regardless of the number of pets. The body is gzip-compressed when the client accepts it.
+     * <p>
+     * The export is written on an async task with a timeout of its own, {@code pets.export.timeout}, long enough for
+     * a large table, while other async requests keep the default one.
+     *
+     * @param acceptEncoding the {@code Accept-Encoding} request header
+     * @param response the response the pets are written to
+     * @return the task streaming the pets
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> exportPets(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                         HttpServletResponse response) {
+        var gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        var writer = objectMapper.writerFor(PetResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return new WebAsyncTask<>(exportTimeout.toMillis(), () -> {
+            OutputStream out = response.getOutputStream();
+            OutputStream target = gzip ? new GZIPOutputStream(out, EXPORT_BUFFER_SIZE) : out;
+            try (var generator = objectMapper.createGenerator(target)) {
+                petService.exportPets(pet -> {
+                    try {
+                        writer.writeValue(generator, pet);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            return null;
+        });
     }
 
     /**
      * Updates an existing pet by ID.
+     * With an {@code If-Match} header carrying the pet's {@code ETag} the update only succeeds if nobody changed
+     * the pet in the meantime, otherwise it is rejected with 412 Precondition Failed.
      *
      * @param id  the ID of the pet to update
+     * @param ifMatch the {@code If-Match} request header
+     * @param accept the {@code Accept} request header, which the returned {@code ETag} depends on
      * @param pet the updated pet data
      * @return the updated pet
      */
-    @PutMapping(value = "/{id}", produces = "application/json")
-    public ResponseEntity<PetResponse> update(@PathVariable Long id, @Nonnull @RequestBody PetRequest pet) {
-        return ResponseEntity.ok(petService.updatePet(id, pet));
+    @PutMapping("/{id}")
+    public ResponseEntity<PetResponse> update(@PathVariable Long id,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                              @Nonnull @RequestBody PetRequest pet) {
+        var updated = petService.updatePet(id, pet, PetETags.parseVersion(id, ifMatch));
+        responseCache.invalidate(id);
+        return okWithVersion(updated, accept);
+    }
+
+    /**
+     * Partially updates an existing pet with a JSON merge patch: only the fields present in the body are changed,
+     * and only their columns are written. Accepts {@code If-Match} like {@link #update}.
+     *
+     * @param id the ID of the pet to update
+     * @param ifMatch the {@code If-Match} request header
+     * @param accept the {@code Accept} request header, which the returned {@code ETag} depends on
+     * @param patch the fields to change
+     * @return the updated pet
+     */
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<PetResponse> patch(@PathVariable Long id,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                             @Nonnull @RequestBody PetPatch patch) {
+        var updated = petService.patchPet(id, patch, PetETags.parseVersion(id, ifMatch));
+        responseCache.invalidate(id);
+        return okWithVersion(updated, accept);
     }
 
     /**
@@ -84,6 +321,27 @@ public class PetController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
         petService.deletePet(id);
+        responseCache.invalidate(id);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Answers with the pet in the encoding negotiated for {@code Accept}, and the tag of that encoding.
+     */
+    @Nonnull
+    private ResponseEntity<PetResponse> okWithVersion(@Nonnull PetResponse pet, String accept) {
+        var contentType = responseCache.negotiate(accept);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .eTag(PetETags.forPet(pet, contentType))
+                .lastModified(pet.lastModified())
+                .body(pet);
+    }
+
+    @Nonnull
+    private static ResponseEntity.BodyBuilder okWithLastModified(@Nonnull List<PetResponse> pets) {
+        var response = ResponseEntity.ok();
+        var lastModified = PetETags.lastModified(pets);
+        return lastModified == null ? response : response.lastModified(lastModified);
+    }
 }
@@ -0,0 +1,135 @@
+package com.mdotm.pets.api;
+
+import com.mdotm.pets.config.BinaryFormatConfig;
+import com.mdotm.pets.exception.PetPreconditionFailedException;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.PetSliceResponse;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Validators for pet representations.
+ * A pet's tag is strong and derived from its id, optimistic-lock version and encoding, so it can be computed from
+ * a cached response or from the {@code version} column alone, and sent back in {@code If-Match} to make an update
+ * conditional. JSON tags carry no suffix, CBOR and Smile tags end in {@code -cbor} and {@code -smile}.
+ * <p>
+ * List tags fold in every pet they contain along with the paging information. They are weak, because the same
+ * list is sent in several encodings and may be gzip-compressed on the way out: Tomcat only compresses responses
+ * without a strong tag, which in turn keeps the strong pet tags exact.
+ */
+final class PetETags {
+
+    private static final String ANY = "*";
+
+    private static final Map<MediaType, String> SUFFIXES = Map.of(
+            MediaType.APPLICATION_JSON, "",
+            MediaType.APPLICATION_CBOR, "-cbor",
+            MediaType.valueOf(BinaryFormatConfig.APPLICATION_SMILE_VALUE), "-smile");
+
+    private PetETags() {
+    }
+
+    /**
+     * @param mediaType JSON, CBOR or Smile, without parameters
+     */
+    @Nonnull
+    static String forPet(long id, long version, @Nonnull MediaType mediaType) {
+        var suffix = SUFFIXES.get(mediaType);
+        if (suffix == null) {
+            throw new IllegalArgumentException("Unsupported media type " + mediaType);
+        }
+        return "\"" + id + "-" + version + suffix + "\"";
+    }
+
+    @Nonnull
+    static String forPet(@Nonnull PetResponse pet, @Nonnull MediaType mediaType) {
+        return forPet(pet.id(), version(pet), mediaType);
+    }
+
+    @Nonnull
+    static String forPage(@Nonnull Page<PetResponse> page) {
+        long hash = hash(page.getContent().stream().mapToLong(PetETags::hash).reduce(17, (a, b) -> 31 * a + b),
+                page.getTotalElements(), page.getNumber(), page.getSize(), page.getSort().hashCode());
+        return "W/\"p-" + Long.toHexString(hash) + "\"";
+    }
+
+    @Nonnull
+    static String forSlice(@Nonnull PetSliceResponse slice) {
+        long hash = hash(slice.content().stream().mapToLong(PetETags::hash).reduce(17, (a, b) -> 31 * a + b),
+                slice.size(), Objects.hashCode(slice.next()));
+        return "W/\"s-" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * The latest modification time of the given pets, for the {@code Last-Modified} header of a list.
+     *
+     * @return the latest {@code last_modified}, or {@code null} if there are no pets
+     */
+    @Nullable
+    static Instant lastModified(@Nonnull Collection<PetResponse> pets) {
+        return pets.stream()
+                .map(PetResponse::lastModified)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+    }
+
+    /**
+     * Extracts the version a client expects from an {@code If-Match} header.
+     * An absent header or {@code *} means the update is unconditional. The tag of any encoding of the pet matches,
+     * since they all stand for the same version. Weak tags cannot be used for a conditional write, and a tag that
+     * does not belong to the pet can never match, so both fail the precondition.
+     *
+     * @param id the pet being updated
+     * @param ifMatch the {@code If-Match} header value
+     * @return the expected version, or {@code null} for an unconditional update
+     * @throws PetPreconditionFailedException if the tag cannot match the pet
+     */
+    @Nullable
+    static Long parseVersion(long id, @Nullable String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ANY.equals(ifMatch.trim())) {
+            return null;
+        }
+        var tag = ifMatch.trim();
+        var prefix = "\"" + id + "-";
+        if (tag.length() > prefix.length() + 1 && tag.startsWith(prefix) && tag.endsWith("\"")) {
+            var version = tag.substring(prefix.length(), tag.length() - 1);
+            for (var suffix : SUFFIXES.values()) {
+                if (!suffix.isEmpty() && version.endsWith(suffix)) {
+                    version = version.substring(0, version.length() - suffix.length());
+                    break;
+                }
+            }
+            try {
+                return Long.parseLong(version);
+            } catch (NumberFormatException ignored) {
+                // falls through to the precondition failure
+            }
+        }
+        throw new PetPreconditionFailedException(String.format("If-Match %s does not match pet with id: %s", tag, id));
+    }
+
+    private static long hash(PetResponse pet) {
+        return hash(pet.id(), version(pet));
+    }
+
+    private static long hash(long... values) {
+        long hash = 17;
+        for (long value : values) {
+            hash = 31 * hash + value;
+        }
+        return hash;
+    }
+
+    private static long version(PetResponse pet) {
+        return pet.version() == null ? 0 : pet.version();
+    }
+}
@@ -0,0 +1,174 @@
+package com.mdotm.pets.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mdotm.pets.config.BinaryFormatConfig;
+import com.mdotm.pets.exception.GenericException;
+import com.mdotm.pets.model.PetResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Encoded {@code GET /api/v1/pets/{id}} bodies, so serving a hot pet is a copy of bytes rather than a pass through
+ * Jackson. Entries are keyed by pet id and hold the bytes of each encoding asked for, tagged with the version and
+ * modification time they were encoded from: a pet that changed since is encoded again, whether or not its entry was
+ * invalidated. The cache is bounded by {@code pets.response-cache.max-size} bytes and evicts the least used entries.
+ * <p>
+ * Hits and misses are published as the {@code cache.gets} metrics of the {@value #CACHE_NAME} cache, and the bytes
+ * held as {@value #BYTES_GAUGE}.
+ */
+@Component
+@Profile("!reactive")
+public class PetResponseCache {
+
+    public static final String CACHE_NAME = "pet-responses";
+
+    public static final String BYTES_GAUGE = "pets.response.cache.bytes";
+
+    /**
+     * Rough size of an entry besides its bytes, so that many tiny entries are still bounded.
+     */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final List<Encoding> encodings;
+    private final Cache<Long, EncodedPet> cache;
+
+    public PetResponseCache(ObjectMapper objectMapper,
+                            MappingJackson2CborHttpMessageConverter cborConverter,
+                            MappingJackson2SmileHttpMessageConverter smileConverter,
+                            MeterRegistry meterRegistry,
+                            @Value("${pets.response-cache.max-size:32MB}") DataSize maxSize) {
+        this.encodings = List.of(
+                new Encoding(MediaType.APPLICATION_JSON, objectMapper.writerFor(PetResponse.class)),
+                new Encoding(MediaType.APPLICATION_CBOR, cborConverter.getObjectMapper().writerFor(PetResponse.class)),
+                new Encoding(MediaType.valueOf(BinaryFormatConfig.APPLICATION_SMILE_VALUE),
+                        smileConverter.getObjectMapper().writerFor(PetResponse.class)));
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .<Long, EncodedPet>weigher((id, encoded) -> encoded.weight())
+                .recordStats()
+                .build();
+        // same tag keys as the Spring caches, which Prometheus requires of meters sharing a name
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME, "cache.manager", "none", "name", CACHE_NAME);
+        // the weighted size is only brought up to date by Caffeine's maintenance, which runs asynchronously
+        Gauge.builder(BYTES_GAUGE, cache, c -> {
+                    c.cleanUp();
+                    return c.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L);
+                })
+                .description("Bytes of encoded pet responses held in memory")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Picks the encoding of a pet response for an {@code Accept} header: the one with the highest quality,
+     * JSON when the client accepts anything.
+     *
+     * @param accept the {@code Accept} request header, possibly absent
+     * @return one of JSON, CBOR or Smile
+     */
+    @Nonnull
+    public MediaType negotiate(@Nullable String accept) {
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        return accepted.stream()
+                .sorted(Comparator.comparingDouble(MediaType::getQualityValue).reversed())
+                .flatMap(type -> encodings.stream().map(Encoding::mediaType).filter(type::isCompatibleWith))
+                .findFirst()
+                .orElse(MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Returns the encoded pet, encoding it on a miss or when the cached bytes are of an older version.
+     *
+     * @param pet the pet to encode
+     * @param mediaType one of the types returned by {@link #negotiate}
+     * @return the encoded pet; must not be modified
+     * @throws GenericException if encoding the pet fails
+     */
+    @Nonnull
+    public byte[] encode(@Nonnull PetResponse pet, @Nonnull MediaType mediaType) {
+        var cached = cache.getIfPresent(pet.id());
+        if (cached != null && cached.isOf(pet)) {
+            var bytes = cached.bytes().get(mediaType);
+            if (bytes != null) {
+                return bytes;
+            }
+        }
+        var bytes = write(pet, mediaType);
+        cache.asMap().compute(pet.id(), (id, current) -> current != null && current.isOf(pet)
+                ? current.with(mediaType, bytes)
+                : new EncodedPet(pet.version(), pet.lastModified(), Map.of(mediaType, bytes)));
+        return bytes;
+    }
+
+    /**
+     * Drops the encoded pet, after it was updated or deleted.
+     *
+     * @param id the pet ID
+     */
+    public void invalidate(@Nonnull Long id) {
+        cache.invalidate(id);
+    }
+
+    @Nonnull
+    private byte[] write(@Nonnull PetResponse pet, @Nonnull MediaType mediaType) {
+        var encoding = encodings.stream()
+                .filter(candidate -> candidate.mediaType().equals(mediaType))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported media type " + mediaType));
+        try {
+            return encoding.writer().writeValueAsBytes(pet);
+        } catch (JsonProcessingException e) {
+            throw new GenericException("Failed to encode pet");
+        }
+    }
+
+    private record Encoding(MediaType mediaType, ObjectWriter writer) {
+    }
+
+    private record EncodedPet(Long version, Instant lastModified, Map<MediaType, byte[]> bytes) {
+
+        boolean isOf(PetResponse pet) {
+            return Objects.equals(version, pet.version()) && Objects.equals(lastModified, pet.lastModified());
+        }
+
+        EncodedPet with(MediaType mediaType, byte[] encoded) {
+            var all = new HashMap<>(bytes);
+            all.put(mediaType, encoded);
+            return new EncodedPet(version, lastModified, Map.copyOf(all));
+        }
+
+        int weight() {
+            return ENTRY_OVERHEAD + bytes.values().stream().mapToInt(encoded -> encoded.length).sum();
+        }
+    }
+}
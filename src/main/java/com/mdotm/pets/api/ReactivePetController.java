@@ -0,0 +1,157 @@
+package com.mdotm.pets.api;
+
+import com.mdotm.pets.model.PetRequest;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.PetSliceResponse;
+import com.mdotm.pets.service.ReactivePetService;
+import jakarta.annotation.Nonnull;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * The pets API on the non-blocking stack, active with the {@code reactive} profile instead of {@link PetController}.
+ * Serves the same paths, bodies, headers and error responses for creating, reading, listing, updating and deleting
+ * pets; the batch, import, export, search, stats and patch endpoints are only served by {@link PetController}.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/v1/pets")
+public class ReactivePetController {
+
+    private final int DEFAULT_PAGE = 0;
+    private final int DEFAULT_PAGE_SIZE = 10;
+
+    private final ReactivePetService petService;
+
+    public ReactivePetController(ReactivePetService petService) {
+        this.petService = petService;
+    }
+
+    /**
+     * Creates a new pet.
+     *
+     * @param pet the pet object to create
+     * @return the created pet
+     */
+    @PostMapping(produces = "application/json")
+    public Mono<ResponseEntity<PetResponse>> createPet(@RequestBody @Nonnull PetRequest pet) {
+        return petService.createPet(pet).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Retrieves a pet by its ID, with {@code ETag} and {@code Last-Modified} headers.
+     * A conditional request for an unchanged pet is answered with 304 Not Modified after looking up the version only.
+     *
+     * @param id the ID of the pet
+     * @param exchange the current exchange, for its conditional headers
+     * @return the pet details, or 304 Not Modified
+     */
+    @GetMapping(value = "/{id}", produces = "application/json")
+    public Mono<ResponseEntity<PetResponse>> getPet(@PathVariable Long id, ServerWebExchange exchange) {
+        var headers = exchange.getRequest().getHeaders();
+        if (headers.getFirst(HttpHeaders.IF_NONE_MATCH) == null && headers.getFirst(HttpHeaders.IF_MODIFIED_SINCE) == null) {
+            return petService.getPet(id).map(ReactivePetController::okWithVersion);
+        }
+        return petService.getPetVersion(id).flatMap(version -> {
+            var eTag = PetETags.forPet(id, version.version(), MediaType.APPLICATION_JSON);
+            // evaluated against the request only, the response headers are set by the returned entity
+            if (exchange.checkNotModified(eTag, version.lastModified())) {
+                return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag)
+                        .lastModified(version.lastModified()).<PetResponse>build());
+            }
+            return petService.getPet(id).map(ReactivePetController::okWithVersion);
+        });
+    }
+
+    /**
+     * Retrieves all pets with pagination, ordered by id.
+     * The response carries a weak {@code ETag} over the page content, so a matching {@code If-None-Match} gets a 304,
+     * and the latest modification time of its pets as {@code Last-Modified}.
+     *
+     * @param page the zero-based page index
+     * @param size the page size
+     * @return a page of pet responses
+     */
+    @GetMapping(produces = "application/json")
+    public Mono<ResponseEntity<Page<PetResponse>>> getAllPets(@RequestParam(defaultValue = "" + DEFAULT_PAGE) int page,
+                                                              @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        return petService.getAllPets(PageRequest.of(page, size))
+                .map(pets -> okWithLastModified(pets.getContent()).eTag(PetETags.forPage(pets)).body(pets));
+    }
+
+    /**
+     * Retrieves pets ordered by id using keyset pagination, without a total count.
+     * Carries a weak {@code ETag} and a {@code Last-Modified} header like {@link #getAllPets}.
+     *
+     * @param cursor the {@code next} token returned by the previous call, absent for the first slice
+     * @param size the maximum number of pets to return
+     * @return a slice of pet responses with the cursor of the following slice
+     */
+    @GetMapping(value = "/scroll", produces = "application/json")
+    public Mono<ResponseEntity<PetSliceResponse>> scrollPets(@RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        return petService.getPetsAfter(cursor, size)
+                .map(slice -> okWithLastModified(slice.content()).eTag(PetETags.forSlice(slice)).body(slice));
+    }
+
+    /**
+     * Updates an existing pet by ID, conditionally on {@code If-Match} like {@link PetController#update}.
+     *
+     * @param id  the ID of the pet to update
+     * @param ifMatch the {@code If-Match} request header
+     * @param pet the updated pet data
+     * @return the updated pet
+     */
+    @PutMapping(value = "/{id}", produces = "application/json")
+    public Mono<ResponseEntity<PetResponse>> update(@PathVariable Long id,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                    @Nonnull @RequestBody PetRequest pet) {
+        return Mono.defer(() -> petService.updatePet(id, pet, PetETags.parseVersion(id, ifMatch)))
+                .map(ReactivePetController::okWithVersion);
+    }
+
+    /**
+     * Deletes a pet by ID.
+     *
+     * @param id the ID of the pet to delete
+     * @return HTTP 204 No Content on success
+     */
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> delete(@PathVariable Long id) {
+        return petService.deletePet(id).then(Mono.fromSupplier(() -> ResponseEntity.noContent().build()));
+    }
+
+    @Nonnull
+    private static ResponseEntity<PetResponse> okWithVersion(@Nonnull PetResponse pet) {
+        return ResponseEntity.ok()
+                .eTag(PetETags.forPet(pet, MediaType.APPLICATION_JSON))
+                .lastModified(pet.lastModified())
+                .body(pet);
+    }
+
+    @Nonnull
+    private static ResponseEntity.BodyBuilder okWithLastModified(@Nonnull List<PetResponse> pets) {
+        var response = ResponseEntity.ok();
+        var lastModified = PetETags.lastModified(pets);
+        return lastModified == null ? response : response.lastModified(lastModified);
+    }
+}
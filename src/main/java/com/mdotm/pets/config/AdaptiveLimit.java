@@ -0,0 +1,153 @@
+package com.mdotm.pets.config;
+
+import jakarta.annotation.Nonnull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concurrency limit that adapts to the latency of the requests it admits, in AIMD fashion, once per window of
+ * {@value #WINDOW_SAMPLES} requests: after a window of requests that were slow or failed the limit shrinks by
+ * {@code backoffRatio}, otherwise it grows by one for every limit's worth of requests of the window.
+ * <p>
+ * Requests of different routes take very different times, e.g. a cached read against a database page, so each latency
+ * is compared with the typical latency of its own route, a slow moving average. A window is slow when its latencies
+ * average more than {@code latencyTolerance} times their routes' typical latency.
+ * Whatever the mix of routes, a steady load keeps that ratio around one, and only a database that slows down as a
+ * whole pushes it up. The average follows a database that became slower for good, which is then taken as the new
+ * normal. Judging whole windows rather than single requests keeps the odd slow request, a cache miss say, from
+ * shrinking the limit, and makes one slow burst count once.
+ * <p>
+ * While the database keeps up, the limit climbs to the concurrency it can serve; when it slows down, requests queue
+ * in it, latency grows and the limit falls back, so excess requests are rejected up front instead of waiting.
+ */
+public class AdaptiveLimit {
+
+    /**
+     * Requests judged together before the limit is adapted.
+     */
+    static final int WINDOW_SAMPLES = 50;
+
+    /**
+     * Weight of each request in its route's typical latency, once the route has seen {@code 1 / TYPICAL_WEIGHT}
+     * requests; before that the typical latency is their plain average.
+     */
+    private static final double TYPICAL_WEIGHT = 0.01;
+
+    /**
+     * Requests a route must have seen before its latencies are judged.
+     */
+    private static final int MIN_ROUTE_SAMPLES = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, RouteLatency> routes = new HashMap<>();
+
+    private volatile double limit;
+    private int windowSamples;
+    private int windowJudged;
+    private int windowUsed;
+    private double windowRatioSum;
+    private boolean windowFailed;
+
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double latencyTolerance, double backoffRatio) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("limits must satisfy 1 <= min-limit <= initial-limit <= max-limit");
+        }
+        if (latencyTolerance <= 1 || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("latency-tolerance must be above 1 and backoff-ratio between 0 and 1");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+    }
+
+    /**
+     * Takes a slot if fewer than {@code limit} requests are in flight.
+     *
+     * @return whether the request is admitted, in which case {@link #release} must follow
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a slot and adapts the limit to how the request went.
+     *
+     * @param route what the request did, e.g. its method and path pattern; requests of a route are expected to take
+     *              about the same time
+     * @param latencyNanos how long the request took
+     * @param failed whether the request failed in a way that points at overload
+     */
+    public void release(@Nonnull String route, long latencyNanos, boolean failed) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        onSample(route, latencyNanos, failed, inFlightBefore);
+    }
+
+    /**
+     * Gives back a slot without adapting the limit, for requests whose latency says nothing about load.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(String route, long latencyNanos, boolean failed, int inFlightBefore) {
+        var latency = routes.computeIfAbsent(route, r -> new RouteLatency());
+        if (latency.samples >= MIN_ROUTE_SAMPLES) {
+            windowRatioSum += latencyNanos / Math.max(1, latency.typicalNanos);
+            windowJudged++;
+        }
+        latency.add(latencyNanos);
+        windowFailed |= failed;
+        if (inFlightBefore * 2 >= limit) {
+            // only grow while the limit is actually used, otherwise it says nothing about what the database can take
+            windowUsed++;
+        }
+        if (++windowSamples < WINDOW_SAMPLES) {
+            return;
+        }
+        if (windowFailed || windowJudged > 0 && windowRatioSum / windowJudged > latencyTolerance) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else {
+            limit = Math.min(maxLimit, limit + windowUsed / limit);
+        }
+        windowSamples = 0;
+        windowJudged = 0;
+        windowUsed = 0;
+        windowRatioSum = 0;
+        windowFailed = false;
+    }
+
+    private static final class RouteLatency {
+
+        private long samples;
+        private double typicalNanos;
+
+        void add(long latencyNanos) {
+            samples++;
+            typicalNanos += (latencyNanos - typicalNanos) * Math.max(TYPICAL_WEIGHT, 1.0 / samples);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.mdotm.pets.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Puts the {@link AdmissionControlInterceptor} in front of the API, enabled with {@code pets.admission.enabled=true}.
+ * Reads and writes get adaptive limits of their own, both configured by {@code pets.admission.*}; bulk requests get
+ * a fixed limit of {@code pets.admission.bulk-limit}.
+ */
+@Configuration
+@ConditionalOnProperty(value = "pets.admission.enabled", havingValue = "true")
+public class AdmissionControlConfig {
+
+    @Bean
+    public AdmissionControlInterceptor admissionControlInterceptor(@Value("${pets.admission.initial-limit:20}") int initialLimit,
+                                                                   @Value("${pets.admission.min-limit:4}") int minLimit,
+                                                                   @Value("${pets.admission.max-limit:200}") int maxLimit,
+                                                                   @Value("${pets.admission.latency-tolerance:2.0}") double latencyTolerance,
+                                                                   @Value("${pets.admission.backoff-ratio:0.9}") double backoffRatio,
+                                                                   @Value("${pets.admission.bulk-limit:4}") int bulkLimit,
+                                                                   @Value("${pets.admission.retry-after:PT1S}") Duration retryAfter,
+                                                                   MeterRegistry meterRegistry) {
+        return new AdmissionControlInterceptor(
+                new AdaptiveLimit(initialLimit, minLimit, maxLimit, latencyTolerance, backoffRatio),
+                new AdaptiveLimit(initialLimit, minLimit, maxLimit, latencyTolerance, backoffRatio),
+                new AdaptiveLimit(bulkLimit, bulkLimit, bulkLimit, latencyTolerance, backoffRatio),
+                retryAfter, meterRegistry);
+    }
+
+    /**
+     * Registers the {@link AdmissionControlInterceptor} for the API.
+     */
+    @Bean
+    public WebMvcConfigurer admissionControlConfigurer(AdmissionControlInterceptor interceptor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor).addPathPatterns("/api/**");
+            }
+        };
+    }
+}
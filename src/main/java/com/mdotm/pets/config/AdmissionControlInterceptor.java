@@ -0,0 +1,128 @@
+package com.mdotm.pets.config;
+
+import com.mdotm.pets.exception.PetOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nonnull;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounds how many API requests reach {@code PetService} at once, with one {@link AdaptiveLimit} for reads and one for
+ * writes, so that when the database slows down excess requests are rejected right away with 503 and
+ * {@code Retry-After} instead of piling up in Tomcat and the connection pool until they all time out.
+ * Each request is reported to its limit under its method and path pattern, so its latency is compared with
+ * that of the same endpoint.
+ * <p>
+ * Bulk requests (batch, import and export) have a limit of their own, so they never hold the slots of single writes,
+ * and are shed first: they are only admitted while reads use less than half of their limit. Their duration depends
+ * on their size, so it is not used to adapt any limit.
+ */
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String LIMIT_GAUGE = "pets.admission.limit";
+    public static final String IN_FLIGHT_GAUGE = "pets.admission.in_flight";
+    public static final String REJECTED_COUNTER = "pets.admission.rejected";
+
+    private static final String PERMIT_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".permit";
+
+    private static final Set<String> BULK_PATTERNS = Set.of("/api/v1/pets/batch", "/api/v1/pets/import",
+            "/api/v1/pets/export");
+
+    enum RequestClass {
+        READ, WRITE, BULK
+    }
+
+    private final Map<RequestClass, AdaptiveLimit> limits = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, Counter> rejected = new EnumMap<>(RequestClass.class);
+    private final Duration retryAfter;
+
+    public AdmissionControlInterceptor(@Nonnull AdaptiveLimit readLimit, @Nonnull AdaptiveLimit writeLimit,
+                                       @Nonnull AdaptiveLimit bulkLimit, @Nonnull Duration retryAfter,
+                                       @Nonnull MeterRegistry meterRegistry) {
+        this.limits.put(RequestClass.READ, readLimit);
+        this.limits.put(RequestClass.WRITE, writeLimit);
+        this.limits.put(RequestClass.BULK, bulkLimit);
+        this.retryAfter = retryAfter;
+        for (RequestClass requestClass : RequestClass.values()) {
+            rejected.put(requestClass, Counter.builder(REJECTED_COUNTER)
+                    .description("Requests rejected by admission control")
+                    .tag("class", requestClass.name().toLowerCase())
+                    .register(meterRegistry));
+            var limit = limits.get(requestClass);
+            var tag = requestClass.name().toLowerCase();
+            Gauge.builder(LIMIT_GAUGE, limit, AdaptiveLimit::getLimit)
+                    .description("Current concurrency limit").tag("class", tag).register(meterRegistry);
+            Gauge.builder(IN_FLIGHT_GAUGE, limit, AdaptiveLimit::getInFlight)
+                    .description("Requests in flight").tag("class", tag).register(meterRegistry);
+        }
+    }
+
+    @Override
+    public boolean preHandle(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nonnull Object handler) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            // async dispatch of a request admitted on its first dispatch
+            return true;
+        }
+        var requestClass = classify(request);
+        var limit = limits.get(requestClass);
+        if (requestClass == RequestClass.BULK && !readsHaveHeadroom()) {
+            throw overloaded(requestClass);
+        }
+        if (!limit.tryAcquire()) {
+            throw overloaded(requestClass);
+        }
+        var route = request.getMethod() + " " + request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        request.setAttribute(PERMIT_ATTRIBUTE, new Permit(requestClass, route, System.nanoTime()));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response,
+                                @Nonnull Object handler, Exception ex) {
+        if (!(request.getAttribute(PERMIT_ATTRIBUTE) instanceof Permit permit)) {
+            return;
+        }
+        request.removeAttribute(PERMIT_ATTRIBUTE);
+        var limit = limits.get(permit.requestClass());
+        if (permit.requestClass() == RequestClass.BULK) {
+            limit.release();
+        } else {
+            limit.release(permit.route(), System.nanoTime() - permit.startNanos(), response.getStatus() >= 500);
+        }
+    }
+
+    private boolean readsHaveHeadroom() {
+        var reads = limits.get(RequestClass.READ);
+        return reads.getInFlight() * 2 < reads.getLimit();
+    }
+
+    @Nonnull
+    private PetOverloadedException overloaded(@Nonnull RequestClass requestClass) {
+        rejected.get(requestClass).increment();
+        return new PetOverloadedException("Too many concurrent requests, retry later", retryAfter);
+    }
+
+    @Nonnull
+    private static RequestClass classify(@Nonnull HttpServletRequest request) {
+        if (BULK_PATTERNS.contains(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE))) {
+            return RequestClass.BULK;
+        }
+        var method = HttpMethod.valueOf(request.getMethod());
+        return method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS
+                ? RequestClass.READ
+                : RequestClass.WRITE;
+    }
+
+    private record Permit(RequestClass requestClass, String route, long startNanos) {
+    }
+}
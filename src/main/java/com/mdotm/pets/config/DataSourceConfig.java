@@ -0,0 +1,39 @@
+package com.mdotm.pets.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Set;
+
+@Configuration
+public class DataSourceConfig {
+
+    private static final Set<String> PRIMARY_POOLS = Set.of("dataSource", "primaryDataSource");
+
+    /**
+     * Puts a {@link BoundedDataSource} in front of the primary Hikari pool when
+     * {@code pets.datasource.concurrency-limit} is set. Meant to be enabled together with
+     * {@code spring.threads.virtual.enabled}, where nothing else bounds how many requests reach the pool.
+     * The primary pool is {@code dataSource}, or {@code primaryDataSource} when a read replica is configured; the
+     * replica pool and the data sources delegating to the pools are left alone.
+     */
+    @Bean
+    @ConditionalOnProperty("pets.datasource.concurrency-limit")
+    public static BeanPostProcessor boundedDataSourcePostProcessor(@Value("${pets.datasource.concurrency-limit}") int limit,
+                                                                   @Value("${pets.datasource.acquire-timeout:30s}") Duration acquireTimeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource && PRIMARY_POOLS.contains(beanName)) {
+                    return new BoundedDataSource(dataSource, limit, acquireTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+}
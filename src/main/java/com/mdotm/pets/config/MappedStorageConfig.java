@@ -0,0 +1,48 @@
+package com.mdotm.pets.config;
+
+import com.mdotm.pets.dao.MappedPetRepository;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+/**
+ * Infrastructure of the {@code mapped} profile, see {@code application-mapped.properties}.
+ */
+@Configuration
+@Profile("mapped")
+public class MappedStorageConfig {
+
+    /**
+     * Lets the {@code @Transactional} service methods run without a database. {@link MappedPetRepository} applies
+     * every call on its own, so there is nothing to begin, commit or roll back; transaction synchronization,
+     * which the caches rely on, still works as usual.
+     */
+    @Bean
+    public PlatformTransactionManager transactionManager() {
+        return new MappedTransactionManager();
+    }
+
+    private static final class MappedTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
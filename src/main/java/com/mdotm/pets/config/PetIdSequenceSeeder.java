@@ -0,0 +1,73 @@
+package com.mdotm.pets.config;
+
+import com.mdotm.pets.model.PetDocument;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves {@code pet_id_sequence} past the ids already in the {@code pet} table before the application takes writes.
+ * On a database created before the sequence existed, or whose pets were inserted without it, the sequence would
+ * otherwise hand out ids that are taken and every create would fail on the primary key.
+ * <p>
+ * Runs once Hibernate has updated the schema and before the web server starts. The sequence row is locked while the
+ * highest id is read, so instances starting together seed it once; a sequence already ahead is left alone. Those
+ * instances may still deadlock, or time out waiting for the lock, in which case the database rolls one of them back
+ * and it tries again, up to {@value #MAX_ATTEMPTS} times.
+ */
+@Slf4j
+@Component
+@Profile("!mapped")
+@DependsOn("entityManagerFactory")
+public class PetIdSequenceSeeder implements InitializingBean {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public PetIdSequenceSeeder(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> seed());
+                return;
+            } catch (DuplicateKeyException e) {
+                log.debug("pet_id_sequence was seeded by another instance");
+                return;
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Seeding pet_id_sequence lost a lock to another instance, retrying: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void seed() {
+        var current = jdbcTemplate.queryForList(
+                "SELECT next_val FROM pet_id_sequence WHERE sequence_name = 'pet' FOR UPDATE", Long.class);
+        long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM pet", Long.class);
+        // so that the next block taken starts right after the highest id
+        long seed = maxId + PetDocument.ID_BLOCK_SIZE - 1;
+        if (current.isEmpty()) {
+            jdbcTemplate.update("INSERT INTO pet_id_sequence (sequence_name, next_val) VALUES ('pet', ?)", seed);
+            log.info("Seeded pet_id_sequence at {}", seed);
+        } else if (current.get(0) < seed) {
+            jdbcTemplate.update("UPDATE pet_id_sequence SET next_val = ? WHERE sequence_name = 'pet'", seed);
+            log.info("Moved pet_id_sequence from {} to {}, past the highest pet id {}", current.get(0), seed, maxId);
+        }
+    }
+}
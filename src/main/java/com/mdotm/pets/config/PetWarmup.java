@@ -0,0 +1,148 @@
+package com.mdotm.pets.config;
+
+import com.mdotm.pets.model.PetRequest;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.Species;
+import jakarta.annotation.Nonnull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends synthetic traffic to the pets API over loopback before the application reports ready, so the JIT has
+ * compiled the controller, service, repository and serialization paths by the time real requests arrive.
+ * Spring Boot only switches the readiness state to {@code ACCEPTING_TRAFFIC} once every {@link ApplicationRunner}
+ * has returned, so a readiness probe keeps the instance out of the load balancer while this runs.
+ * <p>
+ * Each round creates a pet under an owner of its own, reads it back as JSON, CBOR and Smile and conditionally,
+ * updates it, lists and scrolls a page, then deletes it, leaving nothing behind. Rounds run on {@code concurrency}
+ * threads until {@code rounds} are done or {@code max-duration} has passed. A failing request ends the warm-up
+ * early but never the startup.
+ * <p>
+ * Enabled with {@code pets.warmup.enabled=true}.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(value = "pets.warmup.enabled", havingValue = "true")
+public class PetWarmup implements ApplicationRunner {
+
+    private static final Species[] SPECIES = Species.values();
+
+    private final ApplicationContext context;
+    private final RestClient.Builder restClientBuilder;
+    private final int rounds;
+    private final Duration maxDuration;
+    private final int concurrency;
+
+    public PetWarmup(ApplicationContext context, RestClient.Builder restClientBuilder,
+                     @Value("${pets.warmup.rounds:1000}") int rounds,
+                     @Value("${pets.warmup.max-duration:PT30S}") Duration maxDuration,
+                     @Value("${pets.warmup.concurrency:2}") int concurrency) {
+        this.context = context;
+        this.restClientBuilder = restClientBuilder;
+        this.rounds = rounds;
+        this.maxDuration = maxDuration;
+        this.concurrency = concurrency;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        if (!(context instanceof WebServerApplicationContext webContext) || webContext.getWebServer() == null) {
+            log.info("Skipping warm-up, no web server is running");
+            return;
+        }
+        var client = restClientBuilder.clone()
+                .baseUrl("http://127.0.0.1:" + webContext.getWebServer().getPort() + "/api/v1/pets")
+                .build();
+        var owner = "warmup-" + UUID.randomUUID();
+        var remaining = new AtomicInteger(rounds);
+        var completed = new AtomicInteger();
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+
+        var executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> {
+                    int round;
+                    while ((round = remaining.getAndDecrement()) > 0 && System.nanoTime() < deadline) {
+                        round(client, owner, round);
+                        completed.incrementAndGet();
+                    }
+                }));
+            }
+            for (var worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            remaining.set(0);
+            log.warn("Warm-up stopped after {} rounds", completed.get(), e.getCause());
+            return;
+        } finally {
+            // lets the other threads finish their round, so the pets they created are deleted
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        log.info("Warm-up ran {} rounds in {} ms", completed.get(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    private static void round(@Nonnull RestClient client, @Nonnull String owner, int round) {
+        var species = SPECIES[round % SPECIES.length];
+        var pet = client.post()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new PetRequest("pet-" + round, species, round % 20, owner))
+                .retrieve()
+                .body(PetResponse.class);
+        if (pet == null) {
+            throw new RestClientException("Warm-up create returned no pet");
+        }
+        try {
+            String eTag = null;
+            for (var mediaType : List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR,
+                    MediaType.valueOf(BinaryFormatConfig.APPLICATION_SMILE_VALUE))) {
+                eTag = client.get().uri("/{id}", pet.id())
+                        .accept(mediaType)
+                        .retrieve()
+                        .toEntity(byte[].class)
+                        .getHeaders()
+                        .getETag();
+            }
+            client.get().uri("/{id}", pet.id())
+                    .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                    .retrieve()
+                    .toBodilessEntity();
+            client.put().uri("/{id}", pet.id())
+                    .header(HttpHeaders.IF_MATCH, eTag)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(new PetRequest("pet-" + round, species, round % 20 + 1, owner))
+                    .retrieve()
+                    .toBodilessEntity();
+            client.get().uri("?page=0&size=20").retrieve().toEntity(byte[].class);
+            client.get().uri("/scroll?size=20").retrieve().toEntity(byte[].class);
+        } finally {
+            client.delete().uri("/{id}", pet.id()).retrieve().toBodilessEntity();
+        }
+    }
+}
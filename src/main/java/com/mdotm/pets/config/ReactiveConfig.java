@@ -0,0 +1,41 @@
+package com.mdotm.pets.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Infrastructure of the {@code reactive} profile, see {@code application-reactive.properties}.
+ */
+@Configuration
+@Profile("reactive")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveConfig {
+
+    /**
+     * Serves the reactive API on Netty's event loop. Tomcat, pulled in by the servlet stack, would otherwise be
+     * picked as the reactive server too.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Keeps the JDBC data source of {@code spring.datasource.*}. Spring Boot backs off from it as soon as an R2DBC
+     * connection factory exists, but JPA still manages the schema, and the components that are not reactive,
+     * such as the stats reconciliation, still run on it.
+     */
+    @Bean
+    @ConditionalOnExpression("'${pets.datasource.replica.url:}'.isEmpty()")
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
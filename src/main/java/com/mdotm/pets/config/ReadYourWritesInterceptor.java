@@ -0,0 +1,85 @@
+package com.mdotm.pets.config;
+
+import jakarta.annotation.Nonnull;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+
+/**
+ * Keeps a client's reads on the primary for a short window after its own writes, so it does not read
+ * a replica that has not caught up with them yet.
+ * A write request hands the client a cookie holding the end of the window; while a request carries an unexpired
+ * cookie, {@link #isActive()} is true on its thread and {@link ReplicaRoutingDataSource} uses the primary.
+ */
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+    static final String COOKIE = "pets-primary-until";
+
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+    private final Duration window;
+
+    public ReadYourWritesInterceptor(@Nonnull Duration window) {
+        this.window = window;
+    }
+
+    /**
+     * @return whether the request handled by the current thread must read from the primary
+     */
+    public static boolean isActive() {
+        return Boolean.TRUE.equals(ACTIVE.get());
+    }
+
+    @Override
+    public boolean preHandle(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nonnull Object handler) {
+        long now = System.currentTimeMillis();
+        if (isWrite(request)) {
+            var cookie = new Cookie(COOKIE, Long.toString(now + window.toMillis()));
+            cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+            ACTIVE.set(true);
+        } else if (primaryUntil(request) > now) {
+            ACTIVE.set(true);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response,
+                                @Nonnull Object handler, Exception ex) {
+        ACTIVE.remove();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response,
+                                               @Nonnull Object handler) {
+        ACTIVE.remove();
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        var method = HttpMethod.valueOf(request.getMethod());
+        return method != HttpMethod.GET && method != HttpMethod.HEAD && method != HttpMethod.OPTIONS;
+    }
+
+    private static long primaryUntil(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return 0;
+        }
+        for (var cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,83 @@
+package com.mdotm.pets.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Splits database traffic between the primary configured by {@code spring.datasource.*} and a replica
+ * configured by {@code pets.datasource.replica.*}, enabled by setting {@code pets.datasource.replica.url}.
+ * Both pools take their settings from {@code spring.datasource.hikari.*}.
+ */
+@Configuration
+@ConditionalOnProperty("pets.datasource.replica.url")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        var dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource replicaDataSource(@Value("${pets.datasource.replica.url}") String url,
+                                              @Value("${pets.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${pets.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        var dataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource routingDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                      @Qualifier("replicaDataSource") DataSource replica,
+                                                      @Value("${pets.datasource.replica.lag-query:}") String lagQuery,
+                                                      @Value("${pets.datasource.replica.max-lag:PT10S}") Duration maxLag) {
+        return new ReplicaRoutingDataSource(primary, replica, lagQuery, maxLag);
+    }
+
+    /**
+     * The data source used by JPA. Connections are only fetched from the routing data source at the first statement,
+     * once the transaction's read-only flag is known.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * Registers the {@link ReadYourWritesInterceptor} for the API.
+     */
+    @Bean
+    public WebMvcConfigurer readYourWritesConfigurer(
+            @Value("${pets.datasource.replica.read-your-writes-window:PT5S}") Duration window) {
+        var interceptor = new ReadYourWritesInterceptor(window);
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor).addPathPatterns("/api/**");
+            }
+        };
+    }
+}
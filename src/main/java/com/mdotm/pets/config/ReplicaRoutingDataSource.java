@@ -0,0 +1,125 @@
+package com.mdotm.pets.config;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Sends connections of read-only transactions to a replica and everything else to the primary.
+ * The primary is used for reads too while the current request is within the read-your-writes window of its client
+ * (see {@link ReadYourWritesInterceptor}), and while the replica is considered unavailable: it failed to hand out
+ * a connection, or the last probe found it down or lagging by more than {@code maxLag}.
+ * <p>
+ * The routing decision reads the transaction's read-only flag, which Spring only publishes after the transaction
+ * has begun, so this data source must sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * that defers fetching the connection to the first statement.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource replica;
+    private final String lagQuery;
+    private final Duration maxLag;
+
+    private volatile boolean replicaAvailable = true;
+
+    /**
+     * @param primary the data source for writes and for reads that must see them
+     * @param replica the data source for read-only transactions
+     * @param lagQuery a query returning the replica lag in seconds as its single value, or {@code null} to only check
+     *                 that the replica answers
+     * @param maxLag the lag above which reads go to the primary
+     */
+    public ReplicaRoutingDataSource(@Nonnull DataSource primary, @Nonnull DataSource replica,
+                                    @Nullable String lagQuery, @Nonnull Duration maxLag) {
+        this.replica = replica;
+        this.lagQuery = lagQuery == null || lagQuery.isBlank() ? null : lagQuery;
+        this.maxLag = maxLag;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    @Nonnull
+    protected Target determineCurrentLookupKey() {
+        return replicaAvailable
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !ReadYourWritesInterceptor.isActive()
+                ? Target.REPLICA : Target.PRIMARY;
+    }
+
+    @Override
+    @Nonnull
+    public Connection getConnection() throws SQLException {
+        if (determineCurrentLookupKey() == Target.PRIMARY) {
+            return super.getConnection();
+        }
+        try {
+            return super.getConnection();
+        } catch (SQLException e) {
+            markReplicaUnavailable(e.getMessage());
+            return getResolvedDefaultDataSource().getConnection();
+        }
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    /**
+     * Checks that the replica answers and, when a lag query is configured, that it is not lagging behind,
+     * switching reads back to it once it recovers.
+     */
+    @Scheduled(fixedDelayString = "${pets.datasource.replica.probe-interval:PT5S}")
+    public void probeReplica() {
+        try (var connection = replica.getConnection()) {
+            if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                markReplicaUnavailable("connection is not valid");
+                return;
+            }
+            if (lagQuery != null) {
+                Long lagSeconds = null;
+                try (var statement = connection.createStatement(); var result = statement.executeQuery(lagQuery)) {
+                    if (result.next()) {
+                        long lag = result.getLong(1);
+                        lagSeconds = result.wasNull() ? null : lag;
+                    }
+                }
+                if (lagSeconds == null || lagSeconds > maxLag.toSeconds()) {
+                    markReplicaUnavailable("lag is " + (lagSeconds == null ? "unknown" : lagSeconds + "s"));
+                    return;
+                }
+            }
+            if (!replicaAvailable) {
+                log.info("Replica is available again, routing read-only transactions to it");
+                replicaAvailable = true;
+            }
+        } catch (SQLException e) {
+            markReplicaUnavailable(e.getMessage());
+        }
+    }
+
+    private void markReplicaUnavailable(String reason) {
+        if (replicaAvailable) {
+            log.warn("Replica unavailable ({}), routing reads to the primary", reason);
+            replicaAvailable = false;
+        }
+    }
+}
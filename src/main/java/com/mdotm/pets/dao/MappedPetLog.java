@@ -0,0 +1,349 @@
+package com.mdotm.pets.dao;
+
+import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.Species;
+import jakarta.annotation.Nonnull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of pet records in a memory-mapped file.
+ * <p>
+ * The file starts with a 16 byte header (magic, format version, highest id ever allocated) followed by records:
+ * <pre>
+ * int length | int crc32c | byte type | payload
+ * </pre>
+ * where {@code length} counts the type and payload bytes and the checksum covers them. A {@code PUT} record holds a
+ * whole pet and supersedes any earlier record of the same id, a {@code DELETE} record holds only the id.
+ * The file is grown ahead of the writes, so the end of the log is the first record of length zero.
+ * <p>
+ * Records are read in place from the mapping. Appends go to the page cache and survive a crash of the process;
+ * with {@code syncWrites} every append is also forced to the device before it returns. On opening, the log is
+ * replayed up to the first torn or corrupt record and everything after it is discarded.
+ * <p>
+ * Not thread-safe: readers may run concurrently with each other, but appends, {@link #compact} and {@link #clear}
+ * need exclusive access, which {@link MappedPetRepository} provides.
+ */
+@Slf4j
+final class MappedPetLog implements Closeable {
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+
+    private static final int MAGIC = 0x5045544C; // "PETL"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int HIGHEST_ID_OFFSET = 8;
+    private static final int RECORD_HEADER_SIZE = 9;
+    private static final int NO_AGE = Integer.MIN_VALUE;
+    private static final int NO_OWNER = -1;
+    private static final long MIN_CAPACITY = 1 << 20;
+
+    private final Path path;
+    private final boolean syncWrites;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int end;
+    private long garbage;
+
+    /**
+     * Receives the records of the log in order while it is replayed.
+     */
+    interface Replay {
+
+        void put(int offset, @Nonnull PetDocument pet);
+
+        void delete(int offset, long id);
+    }
+
+    /**
+     * Opens the log at {@code path}, creating it if needed; {@link #recover} must be called before anything else.
+     * A compacted copy left behind by a crash during {@link #compact} is incomplete by definition and is removed.
+     */
+    MappedPetLog(@Nonnull Path path, boolean syncWrites) {
+        this.path = path;
+        this.syncWrites = syncWrites;
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.deleteIfExists(compactionPath());
+            map(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            if (buffer.getInt(0) == 0) {
+                buffer.putInt(0, MAGIC).putInt(4, FORMAT_VERSION).putLong(HIGHEST_ID_OFFSET, 0);
+            } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                throw new IllegalStateException(path + " is not a pet log");
+            }
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Failed to open pet log " + path, e);
+        }
+    }
+
+    /**
+     * @return the highest id stored in the header; ids found in the log may be higher after a crash
+     */
+    long highestId() {
+        return buffer.getLong(HIGHEST_ID_OFFSET);
+    }
+
+    void highestId(long id) {
+        buffer.putLong(HIGHEST_ID_OFFSET, id);
+    }
+
+    /**
+     * @return the bytes taken by superseded records, delete records and the records they delete
+     */
+    long garbage() {
+        return garbage;
+    }
+
+    /**
+     * @return the bytes taken by the header and the records
+     */
+    int size() {
+        return end;
+    }
+
+    /**
+     * Appends the current state of a pet.
+     *
+     * @return the offset of the record
+     */
+    int put(@Nonnull PetDocument pet) {
+        var name = pet.getName().getBytes(StandardCharsets.UTF_8);
+        var owner = pet.getOwnerName() == null ? null : pet.getOwnerName().getBytes(StandardCharsets.UTF_8);
+        var record = ByteBuffer.allocate(1 + 8 + 8 + 12 + 12 + 1 + 4 + 4 + name.length + 4 + (owner == null ? 0 : owner.length))
+                .put(PUT)
+                .putLong(pet.getId())
+                .putLong(pet.getVersion())
+                .putLong(pet.getCreateAt().getEpochSecond()).putInt(pet.getCreateAt().getNano())
+                .putLong(pet.getLastModified().getEpochSecond()).putInt(pet.getLastModified().getNano())
+                .put((byte) pet.getSpecies().ordinal())
+                .putInt(pet.getAge() == null ? NO_AGE : pet.getAge())
+                .putInt(name.length).put(name);
+        if (owner == null) {
+            record.putInt(NO_OWNER);
+        } else {
+            record.putInt(owner.length).put(owner);
+        }
+        return append(record.array());
+    }
+
+    /**
+     * Appends the deletion of a pet. The record is garbage as soon as it is written: it only has to outlive the
+     * records of the pet, which compaction drops together with it.
+     *
+     * @return the offset of the record
+     */
+    int delete(long id) {
+        var offset = append(ByteBuffer.allocate(9).put(DELETE).putLong(id).array());
+        release(offset);
+        return offset;
+    }
+
+    /**
+     * Counts a record as garbage, once it has been superseded or deleted.
+     */
+    void release(int offset) {
+        garbage += recordSize(offset);
+    }
+
+    /**
+     * Reads the pet stored by the {@code PUT} record at {@code offset}.
+     */
+    @Nonnull
+    PetDocument read(int offset) {
+        int position = offset + RECORD_HEADER_SIZE;
+        long id = buffer.getLong(position);
+        long version = buffer.getLong(position + 8);
+        var createAt = Instant.ofEpochSecond(buffer.getLong(position + 16), buffer.getInt(position + 24));
+        var lastModified = Instant.ofEpochSecond(buffer.getLong(position + 28), buffer.getInt(position + 36));
+        var species = Species.values()[buffer.get(position + 40)];
+        int age = buffer.getInt(position + 41);
+        int nameLength = buffer.getInt(position + 45);
+        var name = readString(position + 49, nameLength);
+        int ownerLength = buffer.getInt(position + 49 + nameLength);
+        var ownerName = ownerLength == NO_OWNER ? null : readString(position + 53 + nameLength, ownerLength);
+        return new PetDocument(id, name, species, age == NO_AGE ? null : age, ownerName, createAt, lastModified, version);
+    }
+
+    /**
+     * Rewrites the log with only the given records, in the given order, into a new file that then atomically
+     * replaces the current one. A crash before the replacement leaves the current log untouched.
+     *
+     * @param offsets the offsets of the live records
+     * @return the offsets of the same records in the compacted log
+     */
+    @Nonnull
+    int[] compact(@Nonnull int[] offsets) {
+        var compacted = new int[offsets.length];
+        var target = compactionPath();
+        try {
+            long size = HEADER_SIZE;
+            for (int offset : offsets) {
+                size += recordSize(offset);
+            }
+            try (var copy = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                var copyBuffer = copy.map(FileChannel.MapMode.READ_WRITE, 0, capacityFor(size));
+                copyBuffer.put(0, buffer, 0, HEADER_SIZE);
+                int position = HEADER_SIZE;
+                for (int i = 0; i < offsets.length; i++) {
+                    int recordSize = recordSize(offsets[i]);
+                    copyBuffer.put(position, buffer, offsets[i], recordSize);
+                    compacted[i] = position;
+                    position += recordSize;
+                }
+                copyBuffer.force();
+            }
+            Files.move(target, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.info("Compacted pet log {} from {} to {} bytes", path, end, size);
+            channel.close();
+            map(FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            end = (int) size;
+            garbage = 0;
+            return compacted;
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Failed to compact pet log " + path, e);
+        }
+    }
+
+    /**
+     * Drops every record, keeping the highest id so ids are not handed out twice.
+     */
+    void clear() {
+        zero(HEADER_SIZE, end);
+        end = HEADER_SIZE;
+        garbage = 0;
+        sync(0, HEADER_SIZE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Replays the records in order up to the first torn or corrupt one, which becomes the end of the log.
+     */
+    void recover(@Nonnull Replay replay) {
+        int position = HEADER_SIZE;
+        var checksum = new CRC32C();
+        while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + 8 + length > buffer.capacity()) {
+                break;
+            }
+            checksum.reset();
+            checksum.update(buffer.slice(position + 8, length));
+            if ((int) checksum.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            switch (buffer.get(position + 8)) {
+                case PUT -> replay.put(position, read(position));
+                case DELETE -> replay.delete(position, buffer.getLong(position + RECORD_HEADER_SIZE));
+                default -> throw new IllegalStateException("Unknown record type at " + position + " in " + path);
+            }
+            position += 8 + length;
+        }
+        end = position;
+        if (position + RECORD_HEADER_SIZE <= buffer.capacity()
+                && (buffer.getLong(position) != 0 || buffer.get(position + 8) != 0)) {
+            // a record torn by a crash: clear it so a later, shorter append cannot leave a readable rest behind
+            log.warn("Discarding the end of pet log {} from offset {}, it is torn or corrupt", path, position);
+            zero(position, buffer.capacity());
+            sync(position, buffer.capacity() - position);
+        }
+    }
+
+    /**
+     * Writes the record body before its length, so a record is never visible with only part of its bytes.
+     */
+    private int append(byte[] record) {
+        int size = 8 + record.length;
+        ensureCapacity((long) end + size + 4);
+        var checksum = new CRC32C();
+        checksum.update(record);
+        int offset = end;
+        buffer.put(offset + 8, record).putInt(offset + 4, (int) checksum.getValue()).putInt(offset, record.length);
+        end += size;
+        sync(offset, size);
+        return offset;
+    }
+
+    private int recordSize(int offset) {
+        return 8 + buffer.getInt(offset);
+    }
+
+    private String readString(int position, int length) {
+        var bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void zero(int from, int to) {
+        var zeros = new byte[8192];
+        for (int position = from; position < to; position += zeros.length) {
+            buffer.put(position, zeros, 0, Math.min(zeros.length, to - position));
+        }
+    }
+
+    private void sync(int offset, int length) {
+        if (syncWrites) {
+            buffer.force(offset, length);
+        }
+    }
+
+    /**
+     * Grows the file, at least doubling it, when an append would go past the mapping. The previous mapping is left
+     * to the garbage collector; reads never use it again since they go through {@link #buffer}.
+     */
+    private void ensureCapacity(long required) {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityFor(required));
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Failed to grow pet log " + path, e);
+        }
+    }
+
+    private void map(FileChannel channel) throws IOException {
+        this.channel = channel;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityFor(channel.size()));
+    }
+
+    private long capacityFor(long size) {
+        long capacity = MIN_CAPACITY;
+        while (capacity < size) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            if (size > Integer.MAX_VALUE) {
+                throw new DataAccessResourceFailureException("Pet log " + path + " cannot grow beyond 2GB");
+            }
+            capacity = Integer.MAX_VALUE;
+        }
+        return capacity;
+    }
+
+    private Path compactionPath() {
+        return path.resolveSibling(path.getFileName() + ".compact");
+    }
+}
@@ -0,0 +1,506 @@
+package com.mdotm.pets.dao;
+
+import com.mdotm.pets.model.OwnerCount;
+import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetFilter;
+import com.mdotm.pets.model.PetKey;
+import com.mdotm.pets.model.PetPatch;
+import com.mdotm.pets.model.PetPosition;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.PetVersion;
+import com.mdotm.pets.model.Species;
+import com.mdotm.pets.model.SpeciesCount;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.util.TypeInformation;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * {@link PetStore} stored in an embedded {@link MappedPetLog}, for deployments without a database server.
+ * Enabled by the {@code mapped} profile, which also leaves the DataSource and JPA out.
+ * <p>
+ * Two indexes are kept in memory and rebuilt from the log on startup: pet id to record offset, ordered by id, and
+ * (name, species, owner) to pet id, which enforces {@link PetDocument#NATURAL_KEY_CONSTRAINT} by throwing
+ * {@link DuplicateKeyException}. As with the MySQL unique index, pets without an owner are not constrained.
+ * Pets themselves are read from the mapping on every lookup, so the heap only holds the indexes.
+ * <p>
+ * Writes are serialized; reads run concurrently with each other. Every call applies on its own, so a transaction
+ * around several calls is not rolled back: {@link #saveAllAndFlush} is the only multi-pet write and checks every
+ * pet before writing any. Searches and sorted pages scan the pets from the log instead of using secondary indexes.
+ * Superseded and deleted records are dropped by a periodic compaction once they take {@code min-garbage-ratio}
+ * of the log.
+ */
+@Slf4j
+@Repository
+@Profile("mapped")
+public class MappedPetRepository implements PetStore {
+
+    private static final int STREAM_CHUNK_SIZE = 1000;
+
+    private static final Map<String, Comparator<PetDocument>> SORTABLE = Map.of(
+            "id", Comparator.comparing(PetDocument::getId),
+            "name", Comparator.comparing(PetDocument::getName),
+            "species", Comparator.comparing(PetDocument::getSpecies),
+            "age", Comparator.comparing(PetDocument::getAge, Comparator.nullsFirst(Comparator.naturalOrder())),
+            "ownerName", Comparator.comparing(PetDocument::getOwnerName, Comparator.nullsFirst(Comparator.naturalOrder())),
+            "createAt", Comparator.comparing(PetDocument::getCreateAt),
+            "lastModified", Comparator.comparing(PetDocument::getLastModified),
+            "version", Comparator.comparing(PetDocument::getVersion));
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Long, Integer> offsets = new TreeMap<>();
+    private final Map<NaturalKey, Long> naturalKeys = new HashMap<>();
+    private final double minGarbageRatio;
+    private final MappedPetLog petLog;
+
+    private long highestId;
+
+    public MappedPetRepository(@Value("${pets.mapped.path:data/pets.log}") Path path,
+                               @Value("${pets.mapped.sync-writes:false}") boolean syncWrites,
+                               @Value("${pets.mapped.compaction.min-garbage-ratio:0.5}") double minGarbageRatio) {
+        this.minGarbageRatio = minGarbageRatio;
+        this.petLog = new MappedPetLog(path, syncWrites);
+        petLog.recover(new MappedPetLog.Replay() {
+            @Override
+            public void put(int offset, @Nonnull PetDocument pet) {
+                index(pet, offset);
+                highestId = Math.max(highestId, pet.getId());
+            }
+
+            @Override
+            public void delete(int offset, long id) {
+                unindex(id);
+            }
+        });
+        highestId = Math.max(highestId, petLog.highestId());
+        log.info("Opened pet log {} with {} pets, {} of {} bytes garbage", path, offsets.size(), petLog.garbage(),
+                petLog.size());
+    }
+
+    /**
+     * Rewrites the log without its garbage when it takes at least {@code min-garbage-ratio} of it.
+     * Writes wait for the compaction, which copies the live records once.
+     */
+    @Scheduled(fixedDelayString = "${pets.mapped.compaction.interval:PT1M}")
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            if (petLog.garbage() == 0 || petLog.garbage() < minGarbageRatio * petLog.size()) {
+                return;
+            }
+            var ids = offsets.keySet().stream().mapToLong(Long::longValue).toArray();
+            var compacted = petLog.compact(offsets.values().stream().mapToInt(Integer::intValue).toArray());
+            for (int i = 0; i < ids.length; i++) {
+                offsets.put(ids[i], compacted[i]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            petLog.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Nonnull
+    @Override
+    public <S extends PetDocument> S saveAndFlush(@Nonnull S pet) {
+        lock.writeLock().lock();
+        try {
+            checkNaturalKey(pet);
+            return write(pet);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Saves every pet or none: natural keys are checked against the stored pets and within the batch first.
+     */
+    @Nonnull
+    @Override
+    public <S extends PetDocument> List<S> saveAllAndFlush(@Nonnull Iterable<S> pets) {
+        lock.writeLock().lock();
+        try {
+            Map<NaturalKey, Long> batchKeys = new HashMap<>();
+            for (var pet : pets) {
+                checkNaturalKey(pet);
+                var key = NaturalKey.of(pet);
+                if (key != null && batchKeys.put(key, pet.getId() == null ? -1L : pet.getId()) != null) {
+                    throw duplicate(pet);
+                }
+            }
+            List<S> saved = new ArrayList<>();
+            for (var pet : pets) {
+                saved.add(write(pet));
+            }
+            return saved;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Nonnull
+    @Override
+    public Optional<PetDocument> findById(@Nonnull Long id) {
+        return read(() -> find(id));
+    }
+
+    @Override
+    public boolean existsById(@Nonnull Long id) {
+        return read(() -> offsets.containsKey(id));
+    }
+
+    /**
+     * Deletes a pet, checking its version like JPA does for a detached entity.
+     *
+     * @throws ObjectOptimisticLockingFailureException if the pet has been updated since it was read
+     */
+    @Override
+    public void delete(@Nonnull PetDocument pet) {
+        lock.writeLock().lock();
+        try {
+            var stored = find(pet.getId());
+            if (stored.isEmpty()) {
+                return;
+            }
+            if (pet.getVersion() != null && !pet.getVersion().equals(stored.get().getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(PetDocument.class, pet.getId());
+            }
+            unindex(pet.getId());
+            petLog.delete(pet.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Looks each key up in the natural key index, reading only the pets found.
+     */
+    @Nonnull
+    @Override
+    public List<PetDocument> findByNaturalKeys(@Nonnull Collection<PetKey> keys) {
+        return read(() -> keys.stream()
+                .distinct()
+                .map(key -> key.ownerName() == null ? null : naturalKeys.get(new NaturalKey(key.name(), key.species(), key.ownerName())))
+                .filter(Objects::nonNull)
+                .map(id -> petLog.read(offsets.get(id)))
+                .toList());
+    }
+
+    @Nonnull
+    @Override
+    public Optional<PetResponse> findResponseById(@Nonnull Long id) {
+        return read(() -> find(id).map(PetDocument::toPetResponse));
+    }
+
+    @Nonnull
+    @Override
+    public List<PetResponse> findResponsesByIdIn(@Nonnull Collection<Long> ids) {
+        return read(() -> ids.stream()
+                .distinct()
+                .flatMap(id -> find(id).stream())
+                .map(PetDocument::toPetResponse)
+                .toList());
+    }
+
+    @Nonnull
+    @Override
+    public Optional<PetVersion> findVersionById(@Nonnull Long id) {
+        return read(() -> find(id).map(pet -> new PetVersion(pet.getVersion(), pet.getLastModified())));
+    }
+
+    @Override
+    public int updateByIdAndVersion(@Nonnull Long id, @Nonnull Long version, @Nonnull String name,
+                                    @Nonnull Species species, @Nullable Integer age, @Nullable String ownerName,
+                                    @Nonnull Instant lastModified) {
+        return update(id, version, pet -> new PetDocument(id, name, species, age, ownerName, pet.getCreateAt(),
+                lastModified, pet.getVersion() + 1));
+    }
+
+    @Override
+    public int patchById(@Nonnull Long id, @Nullable Long version, @Nonnull PetPatch patch, @Nonnull Instant lastModified) {
+        return update(id, version, pet -> new PetDocument(id,
+                patch.name() != null ? patch.name() : pet.getName(),
+                patch.species() != null ? patch.species() : pet.getSpecies(),
+                patch.agePresent() ? patch.age() : pet.getAge(),
+                patch.ownerName() != null ? patch.ownerName() : pet.getOwnerName(),
+                pet.getCreateAt(), lastModified, pet.getVersion() + 1));
+    }
+
+    @Nonnull
+    @Override
+    public Page<PetResponse> findAllResponses(@Nonnull Pageable pageable) {
+        return read(() -> page(pageable));
+    }
+
+    @Nonnull
+    @Override
+    public List<PetResponse> findResponsesAfter(@Nonnull Long id, @Nonnull Limit limit) {
+        return read(() -> scan(id, pet -> true, limit.max()).stream().map(PetDocument::toPetResponse).toList());
+    }
+
+    @Nonnull
+    @Override
+    public List<PetResponse> search(@Nonnull PetFilter filter, @Nullable PetPosition after, @Nonnull Limit limit) {
+        var order = filter.order();
+        if (order == PetFilter.Order.ID) {
+            return read(() -> scan(after == null ? 0L : after.id(), pet -> matches(filter, pet), limit.max()).stream()
+                    .map(PetDocument::toPetResponse)
+                    .toList());
+        }
+        return read(() -> scan(0L, pet -> matches(filter, pet), Integer.MAX_VALUE)).stream()
+                .map(PetDocument::toPetResponse)
+                .filter(pet -> after == null || PetPosition.of(order, pet).compareTo(after) > 0)
+                .sorted(Comparator.comparing(pet -> PetPosition.of(order, pet)))
+                .limit(limit.max())
+                .toList();
+    }
+
+    @Nonnull
+    @Override
+    public List<SpeciesCount> countBySpecies() {
+        Map<Species, Long> counts = new EnumMap<>(Species.class);
+        read(() -> {
+            offsets.values().forEach(offset -> counts.merge(petLog.read(offset).getSpecies(), 1L, Long::sum));
+            return null;
+        });
+        return counts.entrySet().stream().map(entry -> new SpeciesCount(entry.getKey(), entry.getValue())).toList();
+    }
+
+    @Nonnull
+    @Override
+    public List<OwnerCount> findTopOwners(@Nonnull Limit limit) {
+        Map<String, Long> counts = new HashMap<>();
+        read(() -> {
+            offsets.values().forEach(offset -> {
+                var ownerName = petLog.read(offset).getOwnerName();
+                if (ownerName != null) {
+                    counts.merge(ownerName, 1L, Long::sum);
+                }
+            });
+            return null;
+        });
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit.max())
+                .map(entry -> new OwnerCount(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    /**
+     * Streams every pet ordered by id, reading {@value #STREAM_CHUNK_SIZE} pets at a time, so writes are not held
+     * up while the stream is consumed. Pets written after the stream has passed their id are not seen.
+     */
+    @Nonnull
+    @Override
+    public Stream<PetResponse> streamAll() {
+        return Stream.iterate(findResponsesAfter(0L, Limit.of(STREAM_CHUNK_SIZE)), chunk -> !chunk.isEmpty(),
+                        chunk -> chunk.size() < STREAM_CHUNK_SIZE ? List.of()
+                                : findResponsesAfter(chunk.get(chunk.size() - 1).id(), Limit.of(STREAM_CHUNK_SIZE)))
+                .flatMap(List::stream);
+    }
+
+    private <T> T read(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Optional<PetDocument> find(Long id) {
+        var offset = offsets.get(id);
+        return offset == null ? Optional.empty() : Optional.of(petLog.read(offset));
+    }
+
+    private List<PetDocument> scan(long afterId, Predicate<PetDocument> filter, int limit) {
+        List<PetDocument> pets = new ArrayList<>();
+        for (int offset : offsets.tailMap(afterId, false).values()) {
+            if (pets.size() == limit) {
+                break;
+            }
+            var pet = petLog.read(offset);
+            if (filter.test(pet)) {
+                pets.add(pet);
+            }
+        }
+        return pets;
+    }
+
+    /**
+     * Pages in id order, reading only the pets of the page, unless the page is sorted on another property.
+     */
+    private Page<PetResponse> page(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(scan(0L, pet -> true, Integer.MAX_VALUE).stream().map(PetDocument::toPetResponse).toList());
+        }
+        var pets = offsets.values().stream();
+        var content = (pageable.getSort().isSorted()
+                ? pets.map(petLog::read).sorted(comparator(pageable.getSort()))
+                        .skip(pageable.getOffset()).limit(pageable.getPageSize())
+                : pets.skip(pageable.getOffset()).limit(pageable.getPageSize()).map(petLog::read))
+                .map(PetDocument::toPetResponse)
+                .toList();
+        return new PageImpl<>(content, pageable, offsets.size());
+    }
+
+    /**
+     * Orders like MySQL does: {@code null}s first when ascending, last when descending.
+     */
+    private static Comparator<PetDocument> comparator(Sort sort) {
+        Comparator<PetDocument> comparator = null;
+        for (var order : sort) {
+            var property = SORTABLE.get(order.getProperty());
+            if (property == null) {
+                throw new PropertyReferenceException(order.getProperty(), TypeInformation.of(PetDocument.class), List.of());
+            }
+            property = order.isAscending() ? property : property.reversed();
+            comparator = comparator == null ? property : comparator.thenComparing(property);
+        }
+        return comparator;
+    }
+
+    private int update(Long id, @Nullable Long version, Function<PetDocument, PetDocument> change) {
+        lock.writeLock().lock();
+        try {
+            var stored = find(id);
+            if (stored.isEmpty() || version != null && !version.equals(stored.get().getVersion())) {
+                return 0;
+            }
+            var pet = change.apply(stored.get());
+            checkNaturalKey(pet);
+            unindex(id);
+            index(pet, petLog.put(pet));
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts a pet without id under the next one, or overwrites a stored pet if it is still at the version it has,
+     * following JPA's {@code @Version} semantics.
+     */
+    private <S extends PetDocument> S write(S pet) {
+        if (pet.getId() == null) {
+            pet.setId(++highestId);
+            petLog.highestId(highestId);
+            pet.setVersion(0L);
+        } else {
+            var stored = find(pet.getId());
+            if (stored.isPresent()) {
+                if (!Objects.equals(pet.getVersion(), stored.get().getVersion())) {
+                    throw new ObjectOptimisticLockingFailureException(PetDocument.class, pet.getId());
+                }
+                unindex(pet.getId());
+                pet.setVersion(pet.getVersion() + 1);
+            } else {
+                highestId = Math.max(highestId, pet.getId());
+                petLog.highestId(highestId);
+                pet.setVersion(pet.getVersion() == null ? 0L : pet.getVersion());
+            }
+        }
+        index(pet, petLog.put(pet));
+        return pet;
+    }
+
+    private void index(PetDocument pet, int offset) {
+        var previous = offsets.put(pet.getId(), offset);
+        if (previous != null) {
+            removeNaturalKey(pet.getId(), previous);
+            petLog.release(previous);
+        }
+        var key = NaturalKey.of(pet);
+        if (key != null) {
+            naturalKeys.put(key, pet.getId());
+        }
+    }
+
+    private void unindex(long id) {
+        var offset = offsets.remove(id);
+        if (offset != null) {
+            removeNaturalKey(id, offset);
+            petLog.release(offset);
+        }
+    }
+
+    private void removeNaturalKey(long id, int offset) {
+        var key = NaturalKey.of(petLog.read(offset));
+        if (key != null) {
+            naturalKeys.remove(key, id);
+        }
+    }
+
+    private void checkNaturalKey(PetDocument pet) {
+        var key = NaturalKey.of(pet);
+        var owner = key == null ? null : naturalKeys.get(key);
+        if (owner != null && !owner.equals(pet.getId())) {
+            throw duplicate(pet);
+        }
+    }
+
+    private static DuplicateKeyException duplicate(PetDocument pet) {
+        return new DuplicateKeyException(String.format("Duplicate entry '%s-%s-%s' for key '%s'",
+                pet.getName(), pet.getSpecies(), pet.getOwnerName(), PetDocument.NATURAL_KEY_CONSTRAINT));
+    }
+
+    private static boolean matches(PetFilter filter, PetDocument pet) {
+        return (filter.species() == null || filter.species() == pet.getSpecies())
+                && (filter.ownerName() == null || filter.ownerName().equals(pet.getOwnerName()))
+                && (filter.minAge() == null || pet.getAge() != null && pet.getAge() >= filter.minAge())
+                && (filter.maxAge() == null || pet.getAge() != null && pet.getAge() <= filter.maxAge())
+                && (filter.createdFrom() == null || !pet.getCreateAt().isBefore(filter.createdFrom()))
+                && (filter.createdTo() == null || pet.getCreateAt().isBefore(filter.createdTo()))
+                && (filter.modifiedFrom() == null || !pet.getLastModified().isBefore(filter.modifiedFrom()))
+                && (filter.modifiedTo() == null || pet.getLastModified().isBefore(filter.modifiedTo()));
+    }
+
+    private record NaturalKey(String name, Species species, String ownerName) {
+
+        @Nullable
+        static NaturalKey of(PetDocument pet) {
+            return pet.getOwnerName() == null ? null : new NaturalKey(pet.getName(), pet.getSpecies(), pet.getOwnerName());
+        }
+    }
+}
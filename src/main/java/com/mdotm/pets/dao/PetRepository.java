@@ -1,13 +1,96 @@
 package com.mdotm.pets.dao;
 
+import com.mdotm.pets.model.OwnerCount;
 import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.PetVersion;
 import com.mdotm.pets.model.Species;
+import com.mdotm.pets.model.SpeciesCount;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface PetRepository extends JpaRepository<PetDocument, Long> {
+/**
+ * The JPA {@link PetStore}. Its {@code @Query} declarations override the {@link PetStore} methods of the same name.
+ */
+public interface PetRepository extends JpaRepository<PetDocument, Long>, PetRepositoryCustom, PetStore {
+
+    /**
+     * Selects rows straight into {@link PetResponse}s. Such results are not managed entities: Hibernate neither
+     * hydrates nor snapshots them and has nothing to dirty-check on flush.
+     */
+    String SELECT_PET_RESPONSE = "select new com.mdotm.pets.model.PetResponse(p.id, p.name, p.species, p.age, p.ownerName, "
+            + "p.createAt, p.lastModified, p.version) from PetDocument p";
+
+    String UPDATE_PET = "update PetDocument p set p.name = :name, p.species = :species, p.age = :age, p.ownerName = :ownerName, "
+            + "p.lastModified = :lastModified, p.version = p.version + 1 where p.id = :id";
 
     Optional<PetDocument> findByNameAndSpeciesAndOwnerName(@Nonnull String name, @Nonnull Species species, @Nonnull String ownerName);
+
+    @Query(SELECT_PET_RESPONSE + " where p.id = :id")
+    Optional<PetResponse> findResponseById(@Nonnull @Param("id") Long id);
+
+    /**
+     * Reads the given pets in one statement, in no particular order; ids without a pet are left out.
+     */
+    @Query(SELECT_PET_RESPONSE + " where p.id in :ids")
+    List<PetResponse> findResponsesByIdIn(@Nonnull @Param("ids") Collection<Long> ids);
+
+    @Query("select new com.mdotm.pets.model.PetVersion(p.version, p.lastModified) from PetDocument p where p.id = :id")
+    Optional<PetVersion> findVersionById(@Nonnull @Param("id") Long id);
+
+    /**
+     * Overwrites a pet in a single statement if it is still at the expected version.
+     *
+     * @return the number of rows updated, 0 if there is no pet with this id or its version has moved on
+     */
+    @Modifying
+    @Query(UPDATE_PET + " and p.version = :version")
+    int updateByIdAndVersion(@Nonnull @Param("id") Long id, @Nonnull @Param("version") Long version,
+                             @Nonnull @Param("name") String name, @Nonnull @Param("species") Species species,
+                             @Nullable @Param("age") Integer age, @Nullable @Param("ownerName") String ownerName,
+                             @Nonnull @Param("lastModified") Instant lastModified);
+
+    @Query(value = SELECT_PET_RESPONSE, countQuery = "select count(p) from PetDocument p")
+    Page<PetResponse> findAllResponses(@Nonnull Pageable pageable);
+
+    @Query(SELECT_PET_RESPONSE + " where p.id > :id order by p.id")
+    List<PetResponse> findResponsesAfter(@Nonnull @Param("id") Long id, @Nonnull Limit limit);
+
+    @Query("select new com.mdotm.pets.model.SpeciesCount(p.species, count(p)) from PetDocument p group by p.species")
+    List<SpeciesCount> countBySpecies();
+
+    /**
+     * Counts pets per owner, largest first. Grouping follows the owner prefix of {@code idx_pet_owner_species}.
+     */
+    @Query("select new com.mdotm.pets.model.OwnerCount(p.ownerName, count(p)) from PetDocument p "
+            + "where p.ownerName is not null group by p.ownerName order by count(p) desc, p.ownerName")
+    List<OwnerCount> findTopOwners(@Nonnull Limit limit);
+
+    /**
+     * Streams every pet ordered by id through a forward-only cursor. Rows are read as projections,
+     * so nothing is attached to the persistence context while the stream is consumed.
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(SELECT_PET_RESPONSE + " order by p.id")
+    Stream<PetResponse> streamAll();
 }
@@ -0,0 +1,54 @@
+package com.mdotm.pets.dao;
+
+import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetFilter;
+import com.mdotm.pets.model.PetKey;
+import com.mdotm.pets.model.PetPatch;
+import com.mdotm.pets.model.PetPosition;
+import com.mdotm.pets.model.PetResponse;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.data.domain.Limit;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Queries built at runtime, which cannot be expressed as a single {@code @Query}.
+ */
+public interface PetRepositoryCustom {
+
+    /**
+     * Finds the pets holding any of the given natural keys, matching each key on all three columns of the
+     * {@code uk_pet_name_species_owner} index rather than the cross product of names and owners.
+     *
+     * @param keys the natural keys to look up
+     * @return the pets found, in no particular order
+     */
+    @Nonnull
+    List<PetDocument> findByNaturalKeys(@Nonnull Collection<PetKey> keys);
+
+    /**
+     * Writes only the columns a patch sets, plus {@code last_modified} and {@code version}, in a single statement.
+     *
+     * @param id the pet ID
+     * @param version the version the pet must still be at, or {@code null} to patch unconditionally
+     * @param patch the fields to change
+     * @param lastModified the new modification time
+     * @return the number of rows updated, 0 if there is no pet with this id or its version has moved on
+     */
+    int patchById(@Nonnull Long id, @Nullable Long version, @Nonnull PetPatch patch, @Nonnull Instant lastModified);
+
+    /**
+     * Finds the pets matching a filter that come after the given position, in the {@link PetFilter#order()} of the
+     * filter. Only the criteria the filter sets become predicates, so the query matches the index chosen for them.
+     *
+     * @param filter the search criteria
+     * @param after the position of the last pet of the previous slice, {@code null} for the first slice
+     * @param limit the maximum number of pets to return
+     * @return the matching pets as responses
+     */
+    @Nonnull
+    List<PetResponse> search(@Nonnull PetFilter filter, @Nullable PetPosition after, @Nonnull Limit limit);
+}
@@ -0,0 +1,154 @@
+package com.mdotm.pets.dao;
+
+import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetFilter;
+import com.mdotm.pets.model.PetKey;
+import com.mdotm.pets.model.PetPatch;
+import com.mdotm.pets.model.PetPosition;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.Species;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Spring Data picks this class up as the implementation of {@link PetRepositoryCustom} by its {@code Impl} suffix.
+ */
+class PetRepositoryCustomImpl implements PetRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    PetRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Nonnull
+    @Override
+    public List<PetDocument> findByNaturalKeys(@Nonnull Collection<PetKey> keys) {
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        var builder = entityManager.getCriteriaBuilder();
+        var query = builder.createQuery(PetDocument.class);
+        var pet = query.from(PetDocument.class);
+        var matches = keys.stream()
+                .map(key -> builder.and(
+                        builder.equal(pet.get("name"), key.name()),
+                        builder.equal(pet.get("species"), key.species()),
+                        builder.equal(pet.get("ownerName"), key.ownerName())))
+                .toArray(Predicate[]::new);
+        return entityManager.createQuery(query.where(builder.or(matches))).getResultList();
+    }
+
+    @Override
+    public int patchById(@Nonnull Long id, @Nullable Long version, @Nonnull PetPatch patch, @Nonnull Instant lastModified) {
+        var builder = entityManager.getCriteriaBuilder();
+        var update = builder.createCriteriaUpdate(PetDocument.class);
+        var pet = update.from(PetDocument.class);
+
+        if (patch.name() != null) {
+            update.set(pet.<String>get("name"), patch.name());
+        }
+        if (patch.species() != null) {
+            update.set(pet.<Species>get("species"), patch.species());
+        }
+        if (patch.agePresent()) {
+            if (patch.age() == null) {
+                update.set(pet.<Integer>get("age"), builder.nullLiteral(Integer.class));
+            } else {
+                update.set(pet.<Integer>get("age"), patch.age());
+            }
+        }
+        if (patch.ownerName() != null) {
+            update.set(pet.<String>get("ownerName"), patch.ownerName());
+        }
+        update.set(pet.<Instant>get("lastModified"), lastModified);
+        update.set(pet.<Long>get("version"), builder.sum(pet.<Long>get("version"), 1L));
+
+        var byId = builder.equal(pet.get("id"), id);
+        update.where(version == null ? byId : builder.and(byId, builder.equal(pet.get("version"), version)));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Nonnull
+    @Override
+    public List<PetResponse> search(@Nonnull PetFilter filter, @Nullable PetPosition after, @Nonnull Limit limit) {
+        var builder = entityManager.getCriteriaBuilder();
+        var query = builder.createQuery(PetResponse.class);
+        var pet = query.from(PetDocument.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.ownerName() != null) {
+            predicates.add(builder.equal(pet.get("ownerName"), filter.ownerName()));
+        }
+        if (filter.species() != null) {
+            predicates.add(builder.equal(pet.get("species"), filter.species()));
+        }
+        if (filter.minAge() != null) {
+            predicates.add(builder.greaterThanOrEqualTo(pet.get("age"), filter.minAge()));
+        }
+        if (filter.maxAge() != null) {
+            predicates.add(builder.lessThanOrEqualTo(pet.get("age"), filter.maxAge()));
+        }
+        if (filter.createdFrom() != null) {
+            predicates.add(builder.greaterThanOrEqualTo(pet.get("createAt"), filter.createdFrom()));
+        }
+        if (filter.createdTo() != null) {
+            predicates.add(builder.lessThan(pet.get("createAt"), filter.createdTo()));
+        }
+        if (filter.modifiedFrom() != null) {
+            predicates.add(builder.greaterThanOrEqualTo(pet.get("lastModified"), filter.modifiedFrom()));
+        }
+        if (filter.modifiedTo() != null) {
+            predicates.add(builder.lessThan(pet.get("lastModified"), filter.modifiedTo()));
+        }
+
+        Path<Long> id = pet.get("id");
+        var key = sortKey(pet, filter.order());
+        if (after != null) {
+            // (key, id) > (after.key, after.id), spelled out so that the index range starts at the position
+            predicates.add(key == null
+                    ? builder.greaterThan(id, after.id())
+                    : builder.or(builder.greaterThan(key, positionKey(after)),
+                    builder.and(builder.equal(key, after.key()), builder.greaterThan(id, after.id()))));
+        }
+
+        query.select(builder.construct(PetResponse.class, id, pet.get("name"), pet.get("species"),
+                        pet.get("age"), pet.get("ownerName"), pet.get("createAt"), pet.get("lastModified"), pet.get("version")))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(key == null ? List.of(builder.asc(id)) : List.of(builder.asc(key), builder.asc(id)));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit.max())
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+    }
+
+    /**
+     * The column a search is ordered by before id, {@code null} when it is ordered by id alone.
+     */
+    @Nullable
+    private static Path<Comparable<Object>> sortKey(@Nonnull Root<PetDocument> pet, @Nonnull PetFilter.Order order) {
+        return switch (order) {
+            case ID -> null;
+            case AGE -> pet.get("age");
+            case CREATED_AT -> pet.get("createAt");
+            case LAST_MODIFIED -> pet.get("lastModified");
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nonnull
+    private static Comparable<Object> positionKey(@Nonnull PetPosition position) {
+        return (Comparable<Object>) position.key();
+    }
+}
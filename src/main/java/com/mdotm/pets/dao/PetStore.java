@@ -0,0 +1,113 @@
+package com.mdotm.pets.dao;
+
+import com.mdotm.pets.model.OwnerCount;
+import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetFilter;
+import com.mdotm.pets.model.PetKey;
+import com.mdotm.pets.model.PetPatch;
+import com.mdotm.pets.model.PetPosition;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.PetVersion;
+import com.mdotm.pets.model.Species;
+import com.mdotm.pets.model.SpeciesCount;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The storage operations the pet service relies on. Implemented by the JPA {@link PetRepository} and, under the
+ * {@code mapped} profile, by the embedded {@link MappedPetRepository}.
+ * <p>
+ * A pet's name, species and owner are unique: inserts and updates breaking {@link PetDocument#NATURAL_KEY_CONSTRAINT}
+ * fail with a {@link org.springframework.dao.DataIntegrityViolationException}.
+ */
+public interface PetStore {
+
+    /**
+     * Inserts a pet without id, or overwrites a stored pet if it is still at the version it carries.
+     */
+    @Nonnull
+    <S extends PetDocument> S saveAndFlush(@Nonnull S pet);
+
+    @Nonnull
+    <S extends PetDocument> List<S> saveAllAndFlush(@Nonnull Iterable<S> pets);
+
+    @Nonnull
+    Optional<PetDocument> findById(@Nonnull Long id);
+
+    boolean existsById(@Nonnull Long id);
+
+    /**
+     * Deletes a pet if it is still at the version it carries.
+     */
+    void delete(@Nonnull PetDocument pet);
+
+    /**
+     * @see PetRepositoryCustom#findByNaturalKeys(Collection)
+     */
+    @Nonnull
+    List<PetDocument> findByNaturalKeys(@Nonnull Collection<PetKey> keys);
+
+    @Nonnull
+    Optional<PetResponse> findResponseById(@Nonnull Long id);
+
+    /**
+     * Reads the given pets, in no particular order; ids without a pet are left out.
+     */
+    @Nonnull
+    List<PetResponse> findResponsesByIdIn(@Nonnull Collection<Long> ids);
+
+    @Nonnull
+    Optional<PetVersion> findVersionById(@Nonnull Long id);
+
+    /**
+     * Overwrites a pet if it is still at the expected version.
+     *
+     * @return the number of rows updated, 0 if there is no pet with this id or its version has moved on
+     */
+    int updateByIdAndVersion(@Nonnull Long id, @Nonnull Long version, @Nonnull String name, @Nonnull Species species,
+                             @Nullable Integer age, @Nullable String ownerName, @Nonnull Instant lastModified);
+
+    /**
+     * @see PetRepositoryCustom#patchById(Long, Long, PetPatch, Instant)
+     */
+    int patchById(@Nonnull Long id, @Nullable Long version, @Nonnull PetPatch patch, @Nonnull Instant lastModified);
+
+    @Nonnull
+    Page<PetResponse> findAllResponses(@Nonnull Pageable pageable);
+
+    /**
+     * Reads the pets whose id is greater than the given one, ordered by id.
+     */
+    @Nonnull
+    List<PetResponse> findResponsesAfter(@Nonnull Long id, @Nonnull Limit limit);
+
+    /**
+     * @see PetRepositoryCustom#search(PetFilter, PetPosition, Limit)
+     */
+    @Nonnull
+    List<PetResponse> search(@Nonnull PetFilter filter, @Nullable PetPosition after, @Nonnull Limit limit);
+
+    /**
+     * Streams every pet ordered by id. Must be closed once consumed.
+     */
+    @Nonnull
+    Stream<PetResponse> streamAll();
+
+    @Nonnull
+    List<SpeciesCount> countBySpecies();
+
+    /**
+     * Counts pets per owner, largest first; pets without an owner are left out.
+     */
+    @Nonnull
+    List<OwnerCount> findTopOwners(@Nonnull Limit limit);
+}
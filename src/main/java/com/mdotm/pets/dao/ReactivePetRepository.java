@@ -0,0 +1,223 @@
+package com.mdotm.pets.dao;
+
+import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.PetVersion;
+import com.mdotm.pets.model.Species;
+import io.r2dbc.spi.Readable;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * Non-blocking access to the {@code pet} table through R2DBC, for the reactive API.
+ * Works on the schema managed by {@link PetDocument}: species are stored by ordinal, in whichever integer type the
+ * dialect picked, timestamps in UTC, and ids are taken from the {@code pet_id_sequence} table in blocks, the same way
+ * Hibernate's pooled table generator does, so both stacks can write to the same database.
+ */
+@Repository
+@Profile("reactive")
+public class ReactivePetRepository {
+
+    private static final String COLUMNS = "id, name, species, age, owner_name, created_at, last_modified, version";
+
+    private static final String UPDATE_PET = "UPDATE pet SET name = :name, species = :species, age = :age, "
+            + "owner_name = :ownerName, last_modified = :lastModified, version = version + 1 WHERE id = :id";
+
+    private final DatabaseClient databaseClient;
+
+    private long nextId;
+    private long lastId = -1;
+
+    public ReactivePetRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Nonnull
+    public Mono<PetResponse> findResponseById(@Nonnull Long id) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM pet WHERE id = :id")
+                .bind("id", id)
+                .map(ReactivePetRepository::toPetResponse)
+                .one();
+    }
+
+    @Nonnull
+    public Mono<PetVersion> findVersionById(@Nonnull Long id) {
+        return databaseClient.sql("SELECT version, last_modified FROM pet WHERE id = :id")
+                .bind("id", id)
+                .map(row -> new PetVersion(row.get("version", Long.class), toInstant(row.get("last_modified"))))
+                .one();
+    }
+
+    @Nonnull
+    public Flux<PetResponse> findAll(long offset, int limit) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM pet ORDER BY id LIMIT :limit OFFSET :offset")
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(ReactivePetRepository::toPetResponse)
+                .all();
+    }
+
+    @Nonnull
+    public Mono<Long> count() {
+        return databaseClient.sql("SELECT COUNT(*) FROM pet")
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    @Nonnull
+    public Flux<PetResponse> findResponsesAfter(long id, int limit) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM pet WHERE id > :id ORDER BY id LIMIT :limit")
+                .bind("id", id)
+                .bind("limit", limit)
+                .map(ReactivePetRepository::toPetResponse)
+                .all();
+    }
+
+    /**
+     * Inserts a pet under a newly allocated id.
+     *
+     * @return the stored pet
+     */
+    @Nonnull
+    public Mono<PetResponse> insert(@Nonnull String name, @Nonnull Species species, @Nullable Integer age,
+                                    @Nullable String ownerName, @Nonnull Instant now) {
+        return allocateId().flatMap(id -> bindPet(databaseClient.sql("INSERT INTO pet (" + COLUMNS + ") "
+                                + "VALUES (:id, :name, :species, :age, :ownerName, :createdAt, :lastModified, 0)"),
+                        id, name, species, age, ownerName, now)
+                .bind("createdAt", toDatabase(now))
+                .fetch()
+                .rowsUpdated()
+                .thenReturn(new PetResponse(id, name, species, age, ownerName, now, now, 0L)));
+    }
+
+    /**
+     * Overwrites a pet in a single statement, only if it is still at {@code version} when one is given.
+     *
+     * @return the number of rows updated, 0 if there is no pet with this id or its version has moved on
+     */
+    @Nonnull
+    public Mono<Long> update(@Nonnull Long id, @Nullable Long version, @Nonnull String name, @Nonnull Species species,
+                             @Nullable Integer age, @Nullable String ownerName, @Nonnull Instant now) {
+        var spec = databaseClient.sql(version == null ? UPDATE_PET : UPDATE_PET + " AND version = :version");
+        if (version != null) {
+            spec = spec.bind("version", version);
+        }
+        return bindPet(spec, id, name, species, age, ownerName, now).fetch().rowsUpdated();
+    }
+
+    @Nonnull
+    public Mono<Long> deleteById(@Nonnull Long id) {
+        return databaseClient.sql("DELETE FROM pet WHERE id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    @Nonnull
+    public Mono<Boolean> existsById(@Nonnull Long id) {
+        return databaseClient.sql("SELECT 1 FROM pet WHERE id = :id")
+                .bind("id", id)
+                .map(row -> true)
+                .first()
+                .defaultIfEmpty(false);
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindPet(DatabaseClient.GenericExecuteSpec spec, Long id, String name,
+                                                             Species species, Integer age, String ownerName, Instant now) {
+        spec = spec.bind("id", id)
+                .bind("name", name)
+                .bind("species", species.ordinal())
+                .bind("lastModified", toDatabase(now));
+        spec = age == null ? spec.bindNull("age", Integer.class) : spec.bind("age", age);
+        return ownerName == null ? spec.bindNull("ownerName", String.class) : spec.bind("ownerName", ownerName);
+    }
+
+    /**
+     * Hands out the next id of the current block, reserving a new block when it is used up.
+     * A block is reserved by moving {@code next_val} forward by {@link PetDocument#ID_BLOCK_SIZE} with a compare-and-set
+     * UPDATE; reading {@code v} reserves the same ids Hibernate's pooled optimizer takes for that value, see
+     * {@link PetDocument#ID_BLOCK_SIZE}, so blocks taken by either stack never overlap. The sequence row is created at startup by {@code PetIdSequenceSeeder}.
+     */
+    private Mono<Long> allocateId() {
+        return Mono.defer(() -> {
+            synchronized (this) {
+                if (nextId <= lastId) {
+                    return Mono.just(nextId++);
+                }
+            }
+            return reserveBlock().map(last -> {
+                synchronized (this) {
+                    if (nextId > lastId) {
+                        nextId = last - PetDocument.ID_BLOCK_SIZE + 2;
+                        lastId = last + 1;
+                    }
+                    return nextId++;
+                }
+            });
+        });
+    }
+
+    private Mono<Long> reserveBlock() {
+        return databaseClient.sql("SELECT next_val FROM pet_id_sequence WHERE sequence_name = 'pet'")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("pet_id_sequence has no 'pet' row")))
+                .flatMap(current -> databaseClient.sql("UPDATE pet_id_sequence SET next_val = :next "
+                                + "WHERE sequence_name = 'pet' AND next_val = :current")
+                        .bind("next", current + PetDocument.ID_BLOCK_SIZE)
+                        .bind("current", current)
+                        .fetch()
+                        .rowsUpdated()
+                        .filter(updated -> updated == 1)
+                        .map(updated -> current))
+                // another allocator moved next_val in between: read it again
+                .repeatWhenEmpty(Integer.MAX_VALUE, attempts -> attempts);
+    }
+
+    private static PetResponse toPetResponse(Readable row) {
+        return new PetResponse(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                Species.values()[((Number) row.get("species")).intValue()],
+                row.get("age", Integer.class),
+                row.get("owner_name", String.class),
+                toInstant(row.get("created_at")),
+                toInstant(row.get("last_modified")),
+                row.get("version", Long.class));
+    }
+
+    private static OffsetDateTime toDatabase(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+
+    /**
+     * Drivers return {@code DATETIME} columns as {@link LocalDateTime}, which holds UTC here, and columns with
+     * a time zone as offset or zoned values.
+     */
+    private static Instant toInstant(Object value) {
+        if (value instanceof Instant instant) {
+            return instant;
+        }
+        if (value instanceof OffsetDateTime offsetDateTime) {
+            return offsetDateTime.toInstant();
+        }
+        if (value instanceof ZonedDateTime zonedDateTime) {
+            return zonedDateTime.toInstant();
+        }
+        if (value instanceof LocalDateTime localDateTime) {
+            return localDateTime.toInstant(ZoneOffset.UTC);
+        }
+        throw new IllegalStateException("Unsupported timestamp type " + (value == null ? null : value.getClass()));
+    }
+}
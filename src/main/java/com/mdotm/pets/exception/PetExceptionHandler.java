@@ -3,35 +3,81 @@ package com.mdotm.pets.exception;
 
 import com.mdotm.pets.model.ErrorCode;
 import com.mdotm.pets.model.ErrorResponseBody;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 @ControllerAdvice
 public class PetExceptionHandler {
 
+    public static final String ERRORS_COUNTER = "pets.errors";
+
+    private final Map<ErrorCode, Counter> errorCounters = new EnumMap<>(ErrorCode.class);
+
+    /**
+     * Registers one {@code pets.errors} counter per {@link ErrorCode} up front, so counting an error is a plain increment.
+     */
+    public PetExceptionHandler(MeterRegistry meterRegistry) {
+        for (ErrorCode errorCode : ErrorCode.values()) {
+            errorCounters.put(errorCode, Counter.builder(ERRORS_COUNTER)
+                    .description("Error responses produced, by error code")
+                    .tag("error_code", errorCode.name())
+                    .register(meterRegistry));
+        }
+    }
+
     @ExceptionHandler(PetNotFoundException.class)
     public ResponseEntity handleNotFound(PetNotFoundException ex) {
         ErrorResponseBody errorResponseBody = new ErrorResponseBody(ErrorCode.NOT_FOUND_ERROR, ex.getMessage());
+        errorCounters.get(ErrorCode.NOT_FOUND_ERROR).increment();
         return new ResponseEntity<>(errorResponseBody, HttpStatus.NOT_FOUND);
     }
 
     @ExceptionHandler(ValidationException.class)
     public ResponseEntity handleValidationException(ValidationException ex) {
         ErrorResponseBody errorResponseBody = new ErrorResponseBody(ErrorCode.VALIDATION_ERROR, ex.getMessage());
+        errorCounters.get(ErrorCode.VALIDATION_ERROR).increment();
         return new ResponseEntity<>(errorResponseBody, HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler(PetAlreadyExistException.class)
     public ResponseEntity handlePetAlreadyExistException(PetAlreadyExistException ex) {
         ErrorResponseBody errorResponseBody = new ErrorResponseBody(ErrorCode.ALREADY_EXIST_ERROR, ex.getMessage());
+        errorCounters.get(ErrorCode.ALREADY_EXIST_ERROR).increment();
         return new ResponseEntity<>(errorResponseBody, HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(PetPreconditionFailedException.class)
+    public ResponseEntity handlePreconditionFailedException(PetPreconditionFailedException ex) {
+        ErrorResponseBody errorResponseBody = new ErrorResponseBody(ErrorCode.PRECONDITION_FAILED_ERROR, ex.getMessage());
+        errorCounters.get(ErrorCode.PRECONDITION_FAILED_ERROR).increment();
+        return new ResponseEntity<>(errorResponseBody, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    /**
+     * Answers requests shed by admission control with 503 and a {@code Retry-After} in whole seconds.
+     */
+    @ExceptionHandler(PetOverloadedException.class)
+    public ResponseEntity handleOverloadedException(PetOverloadedException ex) {
+        ErrorResponseBody errorResponseBody = new ErrorResponseBody(ErrorCode.OVERLOADED_ERROR, ex.getMessage());
+        errorCounters.get(ErrorCode.OVERLOADED_ERROR).increment();
+        long retryAfterSeconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                .body(errorResponseBody);
+    }
+
     @ExceptionHandler(GenericException.class)
     public ResponseEntity handleGenericException(GenericException ex) {
         ErrorResponseBody  errorResponseBody = new ErrorResponseBody(ErrorCode.GENERIC_ERROR, ex.getMessage());
+        errorCounters.get(ErrorCode.GENERIC_ERROR).increment();
         return new ResponseEntity<>(errorResponseBody, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 }
@@ -0,0 +1,20 @@
+package com.mdotm.pets.exception;
+
+import java.time.Duration;
+
+public class PetOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public PetOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return how long the client should wait before retrying
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,7 @@
+package com.mdotm.pets.exception;
+
+public class PetPreconditionFailedException extends RuntimeException {
+    public PetPreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -4,5 +4,7 @@ public enum ErrorCode {
     NOT_FOUND_ERROR,
     VALIDATION_ERROR,
     ALREADY_EXIST_ERROR,
+    PRECONDITION_FAILED_ERROR,
+    OVERLOADED_ERROR,
     GENERIC_ERROR
 }
@@ -0,0 +1,12 @@
+package com.mdotm.pets.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nonnull;
+
+public record OwnerCount(@Nonnull
+                         @JsonProperty(value = "owner_name")
+                         String ownerName,
+
+                         @JsonProperty(value = "count")
+                         long count) {
+}
@@ -0,0 +1,21 @@
+package com.mdotm.pets.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nullable;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PetBatchResult(@JsonProperty(value = "index")
+                             int index,
+
+                             @JsonProperty(value = "status")
+                             int status,
+
+                             @Nullable
+                             @JsonProperty(value = "pet")
+                             PetResponse pet,
+
+                             @Nullable
+                             @JsonProperty(value = "error")
+                             ErrorResponseBody error) {
+}
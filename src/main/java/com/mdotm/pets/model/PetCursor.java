@@ -0,0 +1,84 @@
+package com.mdotm.pets.model;
+
+import com.mdotm.pets.exception.ValidationException;
+import jakarta.annotation.Nonnull;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Opaque keyset cursor handed to clients as the {@code next} token of a {@link PetSliceResponse}.
+ * It encodes the id of the last pet returned, so the following slice starts right after it. Searches not ordered by id
+ * also encode the sort key of that pet, see {@link PetPosition}.
+ */
+public final class PetCursor {
+
+    private static final String PREFIX = "id:";
+
+    private PetCursor() {
+    }
+
+    @Nonnull
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Encodes a search position. Positions of a search ordered by id encode like {@link #encode(long)}.
+     */
+    @Nonnull
+    public static String encode(@Nonnull PetPosition position) {
+        if (position.order() == PetFilter.Order.ID) {
+            return encode(position.id());
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((prefix(position.order()) + position.key() + ':' + position.id())
+                        .getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static long decode(@Nonnull String cursor) {
+        try {
+            var decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(PREFIX)) {
+                throw new ValidationException("invalid cursor");
+            }
+            return Long.parseLong(decoded.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("invalid cursor");
+        }
+    }
+
+    /**
+     * Decodes the position of a search in the given order.
+     *
+     * @throws ValidationException if the cursor is malformed or was issued for a search in another order
+     */
+    @Nonnull
+    public static PetPosition decode(@Nonnull String cursor, @Nonnull PetFilter.Order order) {
+        if (order == PetFilter.Order.ID) {
+            return new PetPosition(order, null, decode(cursor));
+        }
+        try {
+            var decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            var prefix = prefix(order);
+            var idSeparator = decoded.lastIndexOf(':');
+            if (!decoded.startsWith(prefix) || idSeparator < prefix.length()) {
+                throw new ValidationException("invalid cursor");
+            }
+            var key = decoded.substring(prefix.length(), idSeparator);
+            var id = Long.parseLong(decoded.substring(idSeparator + 1));
+            return new PetPosition(order, order == PetFilter.Order.AGE ? Integer.valueOf(key) : Instant.parse(key), id);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ValidationException("invalid cursor");
+        }
+    }
+
+    @Nonnull
+    private static String prefix(@Nonnull PetFilter.Order order) {
+        return order.name().toLowerCase(Locale.ROOT) + ':';
+    }
+}
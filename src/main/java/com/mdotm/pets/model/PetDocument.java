@@ -7,10 +7,15 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.Instant;
 
@@ -18,11 +23,51 @@ import java.time.Instant;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "pet")
+@Table(name = "pet", uniqueConstraints = @UniqueConstraint(name = PetDocument.NATURAL_KEY_CONSTRAINT,
+        columnNames = {"name", "species", "owner_name"}),
+        indexes = {
+                @Index(name = PetDocument.OWNER_SPECIES_INDEX, columnList = "owner_name, species"),
+                @Index(name = PetDocument.OWNER_INDEX, columnList = "owner_name, id"),
+                @Index(name = PetDocument.SPECIES_INDEX, columnList = "species, id"),
+                @Index(name = PetDocument.SPECIES_AGE_INDEX, columnList = "species, age"),
+                @Index(name = PetDocument.CREATED_AT_INDEX, columnList = "created_at"),
+                @Index(name = PetDocument.LAST_MODIFIED_INDEX, columnList = "last_modified")
+        })
 public class PetDocument {
 
+    /**
+     * A pet is identified by its name, species and owner; the database enforces it so concurrent creates cannot race.
+     */
+    public static final String NATURAL_KEY_CONSTRAINT = "uk_pet_name_species_owner";
+
+    /*
+     * Search indexes, see PetFilter. InnoDB appends the primary key to every secondary index, so entries are ordered
+     * by id only once all of the index columns are matched by equality: an owner and a species, an owner alone,
+     * a species alone, or a species and a single age. A range on age, created_at or last_modified yields entries
+     * ordered by that column first, so those searches are paginated on (column, id) instead.
+     */
+    public static final String OWNER_SPECIES_INDEX = "idx_pet_owner_species";
+    public static final String OWNER_INDEX = "idx_pet_owner";
+    public static final String SPECIES_INDEX = "idx_pet_species";
+    public static final String SPECIES_AGE_INDEX = "idx_pet_species_age";
+    public static final String CREATED_AT_INDEX = "idx_pet_created_at";
+    public static final String LAST_MODIFIED_INDEX = "idx_pet_last_modified";
+
+    /**
+     * Number of ids taken from {@code pet_id_sequence} at a time. Reading {@code next_val = v} moves it to
+     * {@code v + ID_BLOCK_SIZE} and reserves the ids {@code v - ID_BLOCK_SIZE + 2} to {@code v + 1}: Hibernate 6 stores
+     * the last value handed out rather than the next one ({@code hibernate.id.generator.stored_last_used}).
+     */
+    public static final int ID_BLOCK_SIZE = 50;
+
+    /**
+     * Ids are allocated in blocks from the {@code pet_id_sequence} table rather than by an auto-increment column,
+     * so Hibernate knows them before the INSERT and can group inserts into JDBC batches.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "pet_id")
+    @TableGenerator(name = "pet_id", table = "pet_id_sequence", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "pet", allocationSize = ID_BLOCK_SIZE)
     private Long id;
 
     @Nonnull
@@ -49,8 +94,17 @@ public class PetDocument {
     @Column(name = "last_modified")
     private Instant lastModified;
 
+    /**
+     * Incremented on every update; exposed to clients as the ETag and checked against {@code If-Match}.
+     */
+    @Nullable
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @Nonnull
     public PetResponse toPetResponse() {
-        return new PetResponse(id, name, species, age, ownerName, createAt, lastModified);
+        return new PetResponse(id, name, species, age, ownerName, createAt, lastModified, version);
     }
 }
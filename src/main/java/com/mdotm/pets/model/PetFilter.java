@@ -0,0 +1,98 @@
+package com.mdotm.pets.model;
+
+import com.mdotm.pets.exception.ValidationException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Search criteria for pets. Every criterion is optional, but a search must be able to start from an index, so it
+ * needs an owner, a species or a {@code created_at}/{@code last_modified} bound; an age range alone would scan
+ * the table. Which index serves a search, and the {@link Order} it returns its pets in:
+ * <ul>
+ *     <li>owner and species: {@link PetDocument#OWNER_SPECIES_INDEX}, by id</li>
+ *     <li>owner without species: {@link PetDocument#OWNER_INDEX}, by id</li>
+ *     <li>species without owner, with an age range: {@link PetDocument#SPECIES_AGE_INDEX}, by age then id.
+ *     A single age ({@code min_age} equal to {@code max_age}) is an equality, so the pets come by id.</li>
+ *     <li>species without owner or age range: {@link PetDocument#SPECIES_INDEX}, by id</li>
+ *     <li>otherwise a {@code created_at} bound: {@link PetDocument#CREATED_AT_INDEX}, by creation time then id</li>
+ *     <li>otherwise a {@code last_modified} bound: {@link PetDocument#LAST_MODIFIED_INDEX}, by modification time
+ *     then id</li>
+ * </ul>
+ * Each index yields its entries in that order, so a keyset page reads only the rows it returns, plus those the
+ * remaining criteria reject, and never sorts.
+ * Ranges are inclusive of their lower bound ({@code min_age}, {@code *_from}) and exclusive of their upper bound
+ * for timestamps ({@code *_to}), inclusive for {@code max_age}.
+ */
+public record PetFilter(@Nullable Species species,
+                        @Nullable String ownerName,
+                        @Nullable Integer minAge,
+                        @Nullable Integer maxAge,
+                        @Nullable Instant createdFrom,
+                        @Nullable Instant createdTo,
+                        @Nullable Instant modifiedFrom,
+                        @Nullable Instant modifiedTo) {
+
+    public PetFilter {
+        if (ownerName != null && ownerName.isBlank()) {
+            throw new ValidationException("owner_name must not be blank");
+        }
+        if (minAge != null && minAge < 0 || maxAge != null && maxAge < 0) {
+            throw new ValidationException("age must be greater then or equal to zero");
+        }
+        if (minAge != null && maxAge != null && minAge > maxAge) {
+            throw new ValidationException("min_age must not be greater than max_age");
+        }
+        validateRange(createdFrom, createdTo, "created");
+        validateRange(modifiedFrom, modifiedTo, "modified");
+        if (species == null && ownerName == null && createdFrom == null && createdTo == null
+                && modifiedFrom == null && modifiedTo == null) {
+            throw new ValidationException("search needs species, owner_name or a created/modified range");
+        }
+    }
+
+    /**
+     * The order the matching pets are returned and paginated in, the one of the index serving the search.
+     */
+    @Nonnull
+    public Order order() {
+        if (ownerName != null) {
+            return Order.ID;
+        }
+        if (species != null) {
+            return minAge == null && maxAge == null || Objects.equals(minAge, maxAge) ? Order.ID : Order.AGE;
+        }
+        return createdFrom != null || createdTo != null ? Order.CREATED_AT : Order.LAST_MODIFIED;
+    }
+
+    private static void validateRange(@Nullable Instant from, @Nullable Instant to, String name) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new ValidationException(String.format("%s_from must be before %s_to", name, name));
+        }
+    }
+
+    /**
+     * Sort key of a search, always followed by id so that pets with the same key keep a stable order.
+     */
+    public enum Order {
+        ID,
+        AGE,
+        CREATED_AT,
+        LAST_MODIFIED;
+
+        /**
+         * The value of this key on a pet, {@code null} for {@link #ID}.
+         */
+        @Nullable
+        public Comparable<?> key(@Nonnull PetResponse pet) {
+            return switch (this) {
+                case ID -> null;
+                case AGE -> pet.age();
+                case CREATED_AT -> pet.createdAt();
+                case LAST_MODIFIED -> pet.lastModified();
+            };
+        }
+    }
+}
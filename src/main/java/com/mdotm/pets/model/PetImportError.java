@@ -0,0 +1,12 @@
+package com.mdotm.pets.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nonnull;
+
+public record PetImportError(@JsonProperty(value = "line")
+                             long line,
+
+                             @Nonnull
+                             @JsonProperty(value = "error")
+                             ErrorResponseBody error) {
+}
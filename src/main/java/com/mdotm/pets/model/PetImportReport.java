@@ -0,0 +1,29 @@
+package com.mdotm.pets.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nonnull;
+
+import java.util.List;
+
+public record PetImportReport(@JsonProperty(value = "lines")
+                              long lines,
+
+                              @JsonProperty(value = "created")
+                              long created,
+
+                              @JsonProperty(value = "failed")
+                              long failed,
+
+                              @JsonProperty(value = "elapsed_ms")
+                              long elapsedMillis,
+
+                              @JsonProperty(value = "rows_per_second")
+                              double rowsPerSecond,
+
+                              @Nonnull
+                              @JsonProperty(value = "errors")
+                              List<PetImportError> errors,
+
+                              @JsonProperty(value = "errors_truncated")
+                              boolean errorsTruncated) {
+}
@@ -0,0 +1,19 @@
+package com.mdotm.pets.model;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * The natural key of a pet, on which the {@link PetDocument#NATURAL_KEY_CONSTRAINT} unique index is built.
+ */
+public record PetKey(String name, Species species, String ownerName) {
+
+    @Nonnull
+    public static PetKey of(@Nonnull PetRequest pet) {
+        return new PetKey(pet.name(), pet.species(), pet.ownerName());
+    }
+
+    @Nonnull
+    public static PetKey of(@Nonnull PetDocument pet) {
+        return new PetKey(pet.getName(), pet.getSpecies(), pet.getOwnerName());
+    }
+}
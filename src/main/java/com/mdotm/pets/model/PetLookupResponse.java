@@ -0,0 +1,15 @@
+package com.mdotm.pets.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nonnull;
+
+import java.util.List;
+
+public record PetLookupResponse(@Nonnull
+                                @JsonProperty(value = "content")
+                                List<PetResponse> content,
+
+                                @Nonnull
+                                @JsonProperty(value = "missing_ids")
+                                List<Long> missingIds) {
+}
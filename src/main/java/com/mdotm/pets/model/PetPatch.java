@@ -0,0 +1,98 @@
+package com.mdotm.pets.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.mdotm.pets.exception.ValidationException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * A JSON merge patch for a pet: only the fields present in the document are changed.
+ * {@code "age": null} clears the age, while name, species and owner_name cannot be removed.
+ * Every present field is checked with the same rules as {@link PetRequest}.
+ *
+ * @param name the new name, or {@code null} to keep it
+ * @param species the new species, or {@code null} to keep it
+ * @param age the new age, only applied when {@code agePresent} is set
+ * @param agePresent whether the patch sets the age, possibly to {@code null}
+ * @param ownerName the new owner name, or {@code null} to keep it
+ */
+public record PetPatch(@Nullable String name,
+                       @Nullable Species species,
+                       @Nullable Integer age,
+                       boolean agePresent,
+                       @Nullable String ownerName) {
+
+    private static final String NAME = "name";
+    private static final String SPECIES = "species";
+    private static final String AGE = "age";
+    private static final String OWNER_NAME = "owner_name";
+
+    @Nonnull
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static PetPatch of(@Nonnull JsonNode patch) {
+        if (!patch.isObject()) {
+            throw new ValidationException("patch must be a JSON object");
+        }
+        String name = null;
+        if (patch.has(NAME)) {
+            name = text(patch, NAME);
+            PetRequest.validateName(name);
+        }
+        Species species = null;
+        if (patch.has(SPECIES)) {
+            species = species(text(patch, SPECIES));
+        }
+        Integer age = null;
+        if (patch.has(AGE)) {
+            age = age(patch.get(AGE));
+            PetRequest.validateAge(age);
+        }
+        String ownerName = null;
+        if (patch.has(OWNER_NAME)) {
+            ownerName = text(patch, OWNER_NAME);
+            PetRequest.validateOwnerName(ownerName);
+        }
+        var petPatch = new PetPatch(name, species, age, patch.has(AGE), ownerName);
+        if (petPatch.isEmpty()) {
+            throw new ValidationException("patch must contain at least one of name, species, age or owner_name");
+        }
+        return petPatch;
+    }
+
+    private boolean isEmpty() {
+        return name == null && species == null && !agePresent && ownerName == null;
+    }
+
+    @Nonnull
+    private static String text(@Nonnull JsonNode patch, @Nonnull String field) {
+        var value = patch.get(field);
+        if (value.isNull()) {
+            throw new ValidationException(field + " cannot be removed");
+        }
+        if (!value.isTextual()) {
+            throw new ValidationException(field + " must be a string");
+        }
+        return value.textValue();
+    }
+
+    @Nonnull
+    private static Species species(@Nonnull String value) {
+        try {
+            return Species.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("unknown species: " + value);
+        }
+    }
+
+    @Nullable
+    private static Integer age(@Nonnull JsonNode value) {
+        if (value.isNull()) {
+            return null;
+        }
+        if (!value.isIntegralNumber() || !value.canConvertToInt()) {
+            throw new ValidationException("age must be an integer");
+        }
+        return value.intValue();
+    }
+}
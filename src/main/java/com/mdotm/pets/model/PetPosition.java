@@ -0,0 +1,35 @@
+package com.mdotm.pets.model;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * Where a search slice ended: the sort key and id of its last pet. The following slice starts right after it.
+ *
+ * @param order the order of the search
+ * @param key the value of the sort key on the last pet, {@code null} when the search is ordered by id
+ * @param id the id of the last pet
+ */
+public record PetPosition(@Nonnull PetFilter.Order order, @Nullable Comparable<?> key, long id)
+        implements Comparable<PetPosition> {
+
+    @Nonnull
+    public static PetPosition of(@Nonnull PetFilter.Order order, @Nonnull PetResponse pet) {
+        return new PetPosition(order, order.key(pet), pet.id());
+    }
+
+    /**
+     * Orders positions of the same search by key, then id.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int compareTo(@Nonnull PetPosition other) {
+        if (key != null && other.key != null) {
+            int byKey = ((Comparable<Object>) key).compareTo(other.key);
+            if (byKey != 0) {
+                return byKey;
+            }
+        }
+        return Long.compare(id, other.id);
+    }
+}
@@ -21,16 +21,24 @@ public record PetRequest(@Nonnull
                          @JsonProperty(value = "owner_name")
                          String ownerName) {
     public PetRequest {
-        validate(name, age, ownerName);
+        validateName(name);
+        validateAge(age);
+        validateOwnerName(ownerName);
     }
 
-    private void validate(@Nonnull String name, @Nullable Integer age, @Nullable String ownerName) {
+    static void validateName(@Nonnull String name) {
         if (name.isEmpty() || name.length() < 2) {
             throw new ValidationException("name length too short");
         }
+    }
+
+    static void validateAge(@Nullable Integer age) {
         if (age != null && age < 0) {
             throw new ValidationException("age must be greater then or equal to zero");
         }
+    }
+
+    static void validateOwnerName(@Nullable String ownerName) {
         if (ownerName.isEmpty() || ownerName.length() < 2) {
             throw new ValidationException("owner_name length too short");
         }
@@ -1,5 +1,6 @@
 package com.mdotm.pets.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
@@ -32,5 +33,10 @@ public record PetResponse(@Nonnull
 
                           @Nonnull
                           @JsonProperty(value = "last_modified")
-                          Instant lastModified) {
+                          Instant lastModified,
+
+                          // sent as the ETag header rather than in the body
+                          @Nullable
+                          @JsonIgnore
+                          Long version) {
 }
@@ -0,0 +1,19 @@
+package com.mdotm.pets.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.List;
+
+public record PetSliceResponse(@Nonnull
+                               @JsonProperty(value = "content")
+                               List<PetResponse> content,
+
+                               @Nullable
+                               @JsonProperty(value = "next")
+                               String next,
+
+                               @JsonProperty(value = "size")
+                               int size) {
+}
@@ -0,0 +1,25 @@
+package com.mdotm.pets.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public record PetStatsResponse(@JsonProperty(value = "total")
+                               long total,
+
+                               @Nonnull
+                               @JsonProperty(value = "species")
+                               Map<Species, Long> species,
+
+                               @Nonnull
+                               @JsonProperty(value = "top_owners")
+                               List<OwnerCount> topOwners,
+
+                               @Nullable
+                               @JsonProperty(value = "reconciled_at")
+                               Instant reconciledAt) {
+}
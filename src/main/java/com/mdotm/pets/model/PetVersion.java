@@ -0,0 +1,10 @@
+package com.mdotm.pets.model;
+
+import jakarta.annotation.Nonnull;
+
+import java.time.Instant;
+
+public record PetVersion(long version,
+                         @Nonnull
+                         Instant lastModified) {
+}
@@ -0,0 +1,9 @@
+package com.mdotm.pets.model;
+
+import jakarta.annotation.Nonnull;
+
+public record SpeciesCount(@Nonnull
+                           Species species,
+
+                           long count) {
+}
@@ -0,0 +1,202 @@
+package com.mdotm.pets.service;
+
+import com.mdotm.pets.exception.GenericException;
+import com.mdotm.pets.exception.PetAlreadyExistException;
+import com.mdotm.pets.model.PetBatchResult;
+import com.mdotm.pets.model.PetRequest;
+import com.mdotm.pets.model.PetResponse;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Group commit for single pet creates. Callers of {@link #submit} are queued and a single writer thread inserts
+ * whatever has accumulated, up to {@code maxBatchSize} pets or {@code maxDelay} after the first one, in one
+ * transaction, so concurrent creates share one commit instead of paying for one each.
+ * Every caller still gets its own pet or {@link PetAlreadyExistException}. A caller waits at most
+ * {@code maxDelay} plus the time of one batch insert, and is blocked while {@code queueCapacity} creates are pending.
+ * If the batch has not committed after {@code submitTimeout} the caller gives up with a {@link GenericException}.
+ * <p>
+ * On shutdown the writer finishes its current batch, waiting at most {@code submitTimeout}, and every create still
+ * queued fails. A create queued while shutting down is failed by whichever of the caller and {@link #stop()} takes
+ * it out of the queue first, so no caller is left waiting.
+ * <p>
+ * Enabled with {@code pets.group-commit.enabled=true}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "pets.group-commit.enabled", havingValue = "true")
+public class PetGroupCommit {
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<PendingCreate> queue;
+    private final long submitTimeoutNanos;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public PetGroupCommit(@Value("${pets.group-commit.max-batch-size:100}") int maxBatchSize,
+                          @Value("${pets.group-commit.max-delay:PT0.005S}") Duration maxDelay,
+                          @Value("${pets.group-commit.queue-capacity:10000}") int queueCapacity,
+                          @Value("${pets.group-commit.submit-timeout:PT30S}") Duration submitTimeout) {
+        if (maxBatchSize < 1 || maxBatchSize > PetServiceImpl.MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException(
+                    String.format("pets.group-commit.max-batch-size must be between 1 and %s", PetServiceImpl.MAX_BATCH_SIZE));
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.submitTimeoutNanos = submitTimeout.toNanos();
+    }
+
+    /**
+     * Starts the writer thread.
+     *
+     * @param writer inserts a batch of pets in one transaction, returning one result per pet in order
+     */
+    synchronized void start(@Nonnull Function<List<PetRequest>, List<PetBatchResult>> writer) {
+        if (running) {
+            throw new IllegalStateException("group commit already started");
+        }
+        running = true;
+        writerThread = new Thread(() -> run(writer), "pet-group-commit");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues a pet for the next batch and waits until that batch is committed.
+     *
+     * @param pet the pet to create
+     * @return the created pet
+     * @throws PetAlreadyExistException if a pet with the same name, species and owner already exists
+     * @throws GenericException if saving the pet fails, times out or the application is shutting down
+     */
+    @Nonnull
+    PetResponse submit(@Nonnull PetRequest pet) {
+        if (!running) {
+            throw new GenericException("Failed to save pet");
+        }
+        var pending = new PendingCreate(pet, new CompletableFuture<>());
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GenericException("Interrupted while saving pet");
+        }
+        // stop() may have drained the queue before this pet got in: nobody else would complete it
+        if (!running && queue.remove(pending)) {
+            throw new GenericException("Failed to save pet, shutting down");
+        }
+        PetBatchResult result;
+        try {
+            result = pending.result().get(submitTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new GenericException("Failed to save pet");
+        } catch (TimeoutException e) {
+            // once taken by the writer the pet may still be committed, like after any client-side timeout
+            queue.remove(pending);
+            throw new GenericException("Timed out saving pet");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GenericException("Interrupted while saving pet");
+        }
+        if (result.status() == HttpStatus.CONFLICT.value()) {
+            throw new PetAlreadyExistException(result.error().getErrorMessage());
+        }
+        return result.pet();
+    }
+
+    @PreDestroy
+    synchronized void stop() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.join(TimeUnit.NANOSECONDS.toMillis(submitTimeoutNanos));
+            writerThread.interrupt();
+        }
+        PendingCreate pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(new GenericException("Failed to save pet, shutting down"));
+        }
+    }
+
+    private void run(Function<List<PetRequest>, List<PetBatchResult>> writer) {
+        List<PendingCreate> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                var first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    var next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(writer, batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                batch.forEach(pending -> pending.result().completeExceptionally(
+                        new GenericException("Failed to save pet, shutting down")));
+            } catch (RuntimeException e) {
+                log.error("Group commit of {} pets failed", batch.size(), e);
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private static void flush(Function<List<PetRequest>, List<PetBatchResult>> writer, List<PendingCreate> batch) {
+        List<PetBatchResult> results;
+        try {
+            results = writer.apply(batch.stream().map(PendingCreate::pet).toList());
+        } catch (PetAlreadyExistException e) {
+            // a pet of the batch was created concurrently by another path, so the whole batch was rolled back:
+            // insert one by one to tell which callers conflict
+            for (var pending : batch) {
+                try {
+                    pending.result().complete(writer.apply(List.of(pending.pet())).get(0));
+                } catch (RuntimeException single) {
+                    pending.result().completeExceptionally(single);
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result().complete(results.get(i));
+        }
+    }
+
+    private record PendingCreate(PetRequest pet, CompletableFuture<PetBatchResult> result) {
+    }
+}
@@ -0,0 +1,233 @@
+package com.mdotm.pets.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mdotm.pets.exception.PetAlreadyExistException;
+import com.mdotm.pets.exception.ValidationException;
+import com.mdotm.pets.model.ErrorCode;
+import com.mdotm.pets.model.ErrorResponseBody;
+import com.mdotm.pets.model.PetImportError;
+import com.mdotm.pets.model.PetImportReport;
+import com.mdotm.pets.model.PetRequest;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads pets from a newline-delimited JSON stream, one {@link PetRequest} per line.
+ * The input is read line by line and handed to {@link PetService#createPets(List)} in chunks, each chunk being
+ * committed on its own, so only one chunk is ever held in memory whatever the size of the input. Lines longer than
+ * {@link #MAX_LINE_LENGTH} characters are reported without being buffered, so a single line cannot exhaust the heap
+ * either.
+ */
+@Component
+@Slf4j
+public class PetImporter {
+
+    public static final int MAX_REPORTED_ERRORS = 1000;
+    public static final int MAX_LINE_LENGTH = 16 * 1024;
+
+    private final PetService petService;
+    private final ObjectMapper objectMapper;
+    private final int defaultChunkSize;
+
+    public PetImporter(PetService petService, ObjectMapper objectMapper,
+                       @Value("${pets.import.chunk-size:1000}") int defaultChunkSize) {
+        this.petService = petService;
+        this.objectMapper = objectMapper;
+        this.defaultChunkSize = defaultChunkSize;
+    }
+
+    /**
+     * Imports the pets of an NDJSON stream.
+     * Lines that fail {@link PetRequest} validation, duplicate an existing pet or belong to a chunk that could not be
+     * saved are reported with their line number; the import carries on with the following lines.
+     *
+     * @param ndjson the input stream, one pet request per line
+     * @param chunkSize the number of pets committed per transaction, or {@code null} for the configured default
+     * @return the import report
+     * @throws ValidationException if the chunk size is out of range
+     */
+    @Nonnull
+    public PetImportReport importPets(@Nonnull InputStream ndjson, @Nullable Integer chunkSize) throws IOException {
+        int size = chunkSize == null ? defaultChunkSize : chunkSize;
+        if (size < 1 || size > PetServiceImpl.MAX_BATCH_SIZE) {
+            throw new ValidationException(String.format("chunk_size must be between 1 and %s", PetServiceImpl.MAX_BATCH_SIZE));
+        }
+        var progress = new Progress(System.nanoTime());
+        var reader = new LineReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8));
+        List<PetRequest> chunk = new ArrayList<>(size);
+        List<Long> chunkLines = new ArrayList<>(size);
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() && !reader.tooLong) {
+                continue;
+            }
+            progress.lines++;
+            if (reader.tooLong) {
+                progress.fail(lineNumber, new ErrorResponseBody(ErrorCode.VALIDATION_ERROR,
+                        String.format("line must not be longer than %s characters", MAX_LINE_LENGTH)));
+                continue;
+            }
+            try {
+                var pet = objectMapper.readValue(line, PetRequest.class);
+                if (pet == null) {
+                    progress.fail(lineNumber, new ErrorResponseBody(ErrorCode.VALIDATION_ERROR, "invalid pet record"));
+                    continue;
+                }
+                chunk.add(pet);
+                chunkLines.add(lineNumber);
+            } catch (JsonProcessingException e) {
+                progress.fail(lineNumber, new ErrorResponseBody(ErrorCode.VALIDATION_ERROR, validationMessage(e)));
+            }
+            if (chunk.size() == size) {
+                flush(chunk, chunkLines, progress);
+            }
+        }
+        flush(chunk, chunkLines, progress);
+        return progress.report();
+    }
+
+    private void flush(List<PetRequest> chunk, List<Long> chunkLines, Progress progress) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            var results = petService.createPets(chunk);
+            for (var result : results) {
+                if (result.error() == null) {
+                    progress.created++;
+                } else {
+                    progress.fail(chunkLines.get(result.index()), result.error());
+                }
+            }
+        } catch (PetAlreadyExistException e) {
+            var error = new ErrorResponseBody(ErrorCode.ALREADY_EXIST_ERROR, e.getMessage());
+            chunkLines.forEach(line -> progress.fail(line, error));
+        } catch (RuntimeException e) {
+            log.error("Error importing chunk of {} pets", chunk.size(), e);
+            var error = new ErrorResponseBody(ErrorCode.GENERIC_ERROR, "Failed to save pets");
+            chunkLines.forEach(line -> progress.fail(line, error));
+        }
+        chunk.clear();
+        chunkLines.clear();
+        log.info("Imported {} lines ({} created, {} failed) at {} rows/s",
+                progress.lines, progress.created, progress.failed, String.format("%.1f", progress.rowsPerSecond()));
+    }
+
+    @Nonnull
+    private static String validationMessage(JsonProcessingException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ValidationException) {
+                return cause.getMessage();
+            }
+        }
+        return "invalid pet record";
+    }
+
+    /**
+     * Reads lines like {@link java.io.BufferedReader#readLine()}, keeping at most {@link #MAX_LINE_LENGTH} characters
+     * of each: the rest of a longer line is skipped and the line comes back empty with {@link #tooLong} set.
+     */
+    private static final class LineReader {
+
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private boolean tooLong;
+
+        private LineReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Nullable
+        private String readLine() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    position = 0;
+                    limit = Math.max(0, reader.read(buffer, 0, buffer.length));
+                    if (limit == 0) {
+                        return read ? endLine() : null;
+                    }
+                }
+                read = true;
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                // one character over the limit is kept, as it may be the '\r' of a CRLF line ending
+                int kept = Math.min(position - start, MAX_LINE_LENGTH + 1 - line.length());
+                line.append(buffer, start, kept);
+                tooLong |= kept < position - start;
+                if (position < limit) {
+                    position++;
+                    return endLine();
+                }
+            }
+        }
+
+        private String endLine() {
+            if (!tooLong && !line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+                line.setLength(line.length() - 1);
+            }
+            if (tooLong || line.length() > MAX_LINE_LENGTH) {
+                tooLong = true;
+                return "";
+            }
+            return line.toString();
+        }
+    }
+
+    private static final class Progress {
+
+        private final long startNanos;
+        private final List<PetImportError> errors = new ArrayList<>();
+        private long lines;
+        private long created;
+        private long failed;
+        private boolean errorsTruncated;
+
+        private Progress(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        private void fail(long line, ErrorResponseBody error) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new PetImportError(line, error));
+            } else {
+                errorsTruncated = true;
+            }
+        }
+
+        private long elapsedMillis() {
+            return (System.nanoTime() - startNanos) / 1_000_000;
+        }
+
+        private double rowsPerSecond() {
+            long elapsed = Math.max(1, elapsedMillis());
+            return lines * 1000.0 / elapsed;
+        }
+
+        private PetImportReport report() {
+            return new PetImportReport(lines, created, failed, elapsedMillis(), rowsPerSecond(), errors, errorsTruncated);
+        }
+    }
+}
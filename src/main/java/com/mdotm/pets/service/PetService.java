@@ -1,23 +1,47 @@
 package com.mdotm.pets.service;
 
+import com.mdotm.pets.model.PetBatchResult;
 import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetFilter;
+import com.mdotm.pets.model.PetLookupResponse;
+import com.mdotm.pets.model.PetPatch;
 import com.mdotm.pets.model.PetRequest;
 import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.PetSliceResponse;
+import com.mdotm.pets.model.PetStatsResponse;
+import com.mdotm.pets.model.PetVersion;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface PetService {
 
     PetResponse createPet(PetRequest pet);
 
+    List<PetBatchResult> createPets(List<PetRequest> pets);
+
     PetResponse getPet(Long id);
 
+    PetVersion getPetVersion(Long id);
+
+    PetLookupResponse getPets(List<Long> ids);
+
     Page<PetResponse> getAllPets(Pageable pageable);
 
-    PetResponse updatePet(Long id, PetRequest pet);
+    PetSliceResponse getPetsAfter(String cursor, int size);
+
+    PetSliceResponse searchPets(PetFilter filter, String cursor, int size);
+
+    void exportPets(Consumer<PetResponse> consumer);
+
+    PetResponse updatePet(Long id, PetRequest pet, Long expectedVersion);
+
+    PetResponse patchPet(Long id, PetPatch patch, Long expectedVersion);
 
     void deletePet(Long id);
 
+    PetStatsResponse getStats();
+
 }
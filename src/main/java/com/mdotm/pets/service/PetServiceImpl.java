@@ -1,32 +1,129 @@
 package com.mdotm.pets.service;
 
-import com.mdotm.pets.dao.PetRepository;
+import com.mdotm.pets.dao.PetStore;
 import com.mdotm.pets.exception.GenericException;
 import com.mdotm.pets.exception.PetAlreadyExistException;
 import com.mdotm.pets.exception.PetNotFoundException;
+import com.mdotm.pets.exception.PetPreconditionFailedException;
+import com.mdotm.pets.exception.ValidationException;
+import com.mdotm.pets.model.ErrorCode;
+import com.mdotm.pets.model.ErrorResponseBody;
+import com.mdotm.pets.model.PetBatchResult;
+import com.mdotm.pets.model.PetCursor;
 import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetFilter;
+import com.mdotm.pets.model.PetKey;
+import com.mdotm.pets.model.PetLookupResponse;
+import com.mdotm.pets.model.PetPatch;
+import com.mdotm.pets.model.PetPosition;
 import com.mdotm.pets.model.PetRequest;
 import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.PetSliceResponse;
+import com.mdotm.pets.model.PetStatsResponse;
+import com.mdotm.pets.model.PetVersion;
+import io.micrometer.core.annotation.Timed;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
+@Timed(value = PetServiceImpl.SERVICE_TIMER, histogram = true)
 public class PetServiceImpl implements PetService {
 
-    private PetRepository petRepository;
+    /**
+     * Name of the cache holding {@link PetResponse}s keyed by pet id. Size and TTL are configured through
+     * {@code spring.cache.caffeine.spec}; hit, miss and eviction counters are published under {@code cache.*} metrics.
+     */
+    public static final String PETS_CACHE = "pets";
+
+    /**
+     * Timer recording every service method, tagged by {@code class} and {@code method}.
+     */
+    public static final String SERVICE_TIMER = "pets.service";
+
+    public static final int MAX_SLICE_SIZE = 1000;
+
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    public static final int MAX_LOOKUP_SIZE = 500;
+
+    /**
+     * Times a batch is checked and inserted again after pets of it were created concurrently.
+     */
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+
+    /**
+     * Times an update is attempted when the pet changes between reading and writing it.
+     */
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
+
+    private PetStore petStore;
+    private CacheManager cacheManager;
+    private PetStats petStats;
+    private PetGroupCommit groupCommit;
+    private TransactionTemplate transactionTemplate;
 
-    public PetServiceImpl(PetRepository petRepository) {
-        this.petRepository = petRepository;
+    public PetServiceImpl(PetStore petStore, CacheManager cacheManager, PetStats petStats,
+                          @Nullable PetGroupCommit groupCommit, PlatformTransactionManager transactionManager) {
+        this.petStore = petStore;
+        this.cacheManager = cacheManager;
+        this.petStats = petStats;
+        this.groupCommit = groupCommit;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Starts the group commit writer once the service is fully initialised, rather than handing out {@code this}
+     * while it is still being constructed.
+     */
+    @PostConstruct
+    void startGroupCommit() {
+        if (groupCommit != null) {
+            groupCommit.start(this::insertBatch);
+        }
     }
 
     /**
      * Creates a new pet.
+     * The insert is attempted directly: the unique index on name, species and owner rejects duplicates,
+     * which keeps a create to a single round trip and stays correct under concurrent writers.
+     * With group commit enabled the pet is inserted together with the other pets created at the same time,
+     * in one transaction.
      *
      * @param pet the pet request object containing details
      * @return the created pet response
@@ -35,24 +132,117 @@ public class PetServiceImpl implements PetService {
      */
     @Override
     @Nonnull
+    @CachePut(cacheNames = PETS_CACHE, key = "#result.id")
     public PetResponse createPet(@Nonnull PetRequest pet) {
-        petRepository.findByNameAndSpeciesAndOwnerName(pet.name(), pet.species(), pet.ownerName())
-                .ifPresent(existing -> {
-                    throw new PetAlreadyExistException(
-                            String.format("Pet: %s with owner: %s for species: %s already exists", pet.name(), pet.ownerName(), pet.species()));
-                });
-        var now = Instant.now();
-        var petDocument = new PetDocument(null, pet.name(), pet.species(), pet.age(), pet.ownerName(), now, now);
+        if (groupCommit != null) {
+            return groupCommit.submit(pet);
+        }
+        var now = now();
+        var petDocument = new PetDocument(null, pet.name(), pet.species(), pet.age(), pet.ownerName(), now, now, null);
+        PetResponse created;
         try {
-            return petRepository.save(petDocument).toPetResponse();
+            created = petStore.saveAndFlush(petDocument).toPetResponse();
+        } catch (DataIntegrityViolationException e) {
+            if (isNaturalKeyViolation(e)) {
+                throw new PetAlreadyExistException(alreadyExistsMessage(pet));
+            }
+            log.error("Error saving pet", e);
+            throw new GenericException("Failed to save pet");
         } catch (Exception e) {
             log.error("Error saving pet", e);
             throw new GenericException("Failed to save pet");
         }
+        petStats.created(created);
+        return created;
+    }
+
+    /**
+     * Creates several pets at once.
+     * Duplicates, either against stored pets or earlier entries of the same batch, are resolved with a single query
+     * on the exact natural keys and reported per item; the remaining pets are inserted using JDBC batching, in the
+     * same transaction as the query.
+     *
+     * @param pets the pet requests to create, at most {@link #MAX_BATCH_SIZE}
+     * @return one result per request, in request order
+     * @throws ValidationException if the batch is empty or too large
+     * @throws GenericException if saving the pets fails
+     */
+    @Override
+    @Nonnull
+    public List<PetBatchResult> createPets(@Nonnull List<PetRequest> pets) {
+        if (pets.isEmpty() || pets.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException(String.format("batch size must be between 1 and %s", MAX_BATCH_SIZE));
+        }
+        return insertBatch(pets);
+    }
+
+    /**
+     * Runs the duplicate check and the inserts of a batch in one transaction. A pet of the batch created concurrently
+     * by another request between the two makes the unique index reject the insert: the transaction is rolled back and
+     * the batch checked again, so that pet is reported as a conflict of its own instead of failing the whole batch.
+     */
+    @Nonnull
+    private List<PetBatchResult> insertBatch(@Nonnull List<PetRequest> pets) {
+        for (int attempt = 1; ; attempt++) {
+            List<PetBatchResult> results;
+            try {
+                results = transactionTemplate.execute(status -> insertBatchOnce(pets));
+            } catch (DataIntegrityViolationException e) {
+                if (!isNaturalKeyViolation(e)) {
+                    log.error("Error saving batch of {} pets", pets.size(), e);
+                    throw new GenericException("Failed to save pets");
+                }
+                if (attempt < MAX_BATCH_ATTEMPTS) {
+                    continue;
+                }
+                throw new PetAlreadyExistException("Pets of the batch keep being created concurrently, retry the batch");
+            } catch (Exception e) {
+                log.error("Error saving batch of {} pets", pets.size(), e);
+                throw new GenericException("Failed to save pets");
+            }
+            results.stream()
+                    .filter(result -> result.pet() != null)
+                    .forEach(result -> petStats.created(result.pet()));
+            return results;
+        }
+    }
+
+    @Nonnull
+    private List<PetBatchResult> insertBatchOnce(@Nonnull List<PetRequest> pets) {
+        Set<PetKey> taken = new HashSet<>();
+        petStore.findByNaturalKeys(pets.stream().map(PetKey::of).collect(Collectors.toSet()))
+                .forEach(existing -> taken.add(PetKey.of(existing)));
+
+        var now = now();
+        var results = new PetBatchResult[pets.size()];
+        List<Integer> insertedIndexes = new ArrayList<>();
+        List<PetDocument> toInsert = new ArrayList<>();
+        for (int i = 0; i < pets.size(); i++) {
+            var pet = pets.get(i);
+            if (!taken.add(PetKey.of(pet))) {
+                results[i] = new PetBatchResult(i, HttpStatus.CONFLICT.value(), null,
+                        new ErrorResponseBody(ErrorCode.ALREADY_EXIST_ERROR, alreadyExistsMessage(pet)));
+                continue;
+            }
+            insertedIndexes.add(i);
+            toInsert.add(new PetDocument(null, pet.name(), pet.species(), pet.age(), pet.ownerName(), now, now, null));
+        }
+
+        // flushed here so a unique violation surfaces before the commit, where the retry can tell it apart
+        var saved = petStore.saveAllAndFlush(toInsert);
+        for (int i = 0; i < saved.size(); i++) {
+            int index = insertedIndexes.get(i);
+            results[index] = new PetBatchResult(index, HttpStatus.OK.value(), saved.get(i).toPetResponse(), null);
+        }
+        return Arrays.asList(results);
     }
 
     /**
-     * Retrieves a pet by its ID.
+     * Retrieves a pet by its ID, serving it from the pets cache when present.
+     * Concurrent misses for the same id are collapsed into a single repository lookup.
+     * A miss is read in a read-write transaction, so it goes to the primary even when a replica is configured:
+     * the cache is shared by every client, including the one that just changed the pet, and must not be filled
+     * from a replica that has not caught up.
      *
      * @param id the pet ID
      * @return the pet response
@@ -60,8 +250,81 @@ public class PetServiceImpl implements PetService {
      */
     @Override
     @Nonnull
+    @Cacheable(cacheNames = PETS_CACHE, key = "#id", sync = true)
+    @Transactional
     public PetResponse getPet(Long id) {
-        return findPetById(id).toPetResponse();
+        return petStore.findResponseById(id).orElseThrow(() -> notFound(id));
+    }
+
+    /**
+     * Retrieves the current version and modification time of a pet, to answer conditional requests.
+     * The pets cache is consulted first; on a miss only the {@code version} and {@code last_modified} columns are read.
+     *
+     * @param id the pet ID
+     * @return the version of the pet
+     * @throws PetNotFoundException if the pet is not found
+     */
+    @Override
+    @Nonnull
+    @Transactional(readOnly = true)
+    public PetVersion getPetVersion(Long id) {
+        var cached = cachedPet(id);
+        if (cached != null && cached.version() != null) {
+            return new PetVersion(cached.version(), cached.lastModified());
+        }
+        return petStore.findVersionById(id).orElseThrow(() -> notFound(id));
+    }
+
+    /**
+     * Retrieves several pets by ID. Pets in the pets cache are served from it; the others are read with a single
+     * {@code IN} query and added to the cache. Like {@link #getPet(Long)}, the query goes to the primary.
+     *
+     * @param ids the pet IDs, at most {@link #MAX_LOOKUP_SIZE}; repeated IDs are looked up once
+     * @return the pets found, in the order of their IDs in the request, and the IDs without a pet
+     * @throws ValidationException if no ID or too many IDs are given
+     */
+    @Override
+    @Nonnull
+    @Transactional
+    public PetLookupResponse getPets(@Nonnull List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_LOOKUP_SIZE) {
+            throw new ValidationException(String.format("ids must hold between 1 and %s ids", MAX_LOOKUP_SIZE));
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new ValidationException("ids must not contain empty values");
+        }
+        var requested = new LinkedHashSet<>(ids);
+        var cache = cacheManager.getCache(PETS_CACHE);
+        Map<Long, PetResponse> found = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (var id : requested) {
+            var cached = cache == null ? null : cache.get(id, PetResponse.class);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                misses.add(id);
+            }
+        }
+        if (!misses.isEmpty()) {
+            for (var pet : petStore.findResponsesByIdIn(misses)) {
+                found.put(pet.id(), pet);
+                if (cache != null) {
+                    // never replaces a pet an update put in the cache meanwhile
+                    cache.putIfAbsent(pet.id(), pet);
+                }
+            }
+        }
+        List<PetResponse> content = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (var id : requested) {
+            var pet = found.get(id);
+            if (pet != null) {
+                content.add(pet);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new PetLookupResponse(content, missing);
     }
 
     /**
@@ -72,58 +335,295 @@ public class PetServiceImpl implements PetService {
      */
     @Override
     @Nonnull
+    @Transactional(readOnly = true)
     public Page<PetResponse> getAllPets(Pageable pageable) {
-        return petRepository.findAll(pageable).map(PetDocument::toPetResponse);
+        return petStore.findAllResponses(pageable);
+    }
+
+    /**
+     * Retrieves the slice of pets that follows the given cursor, ordered by id.
+     * Unlike {@link #getAllPets(Pageable)} this neither counts the table nor skips rows with an offset,
+     * so the cost of a slice does not depend on how deep the client has scrolled.
+     *
+     * @param cursor the {@code next} token of the previous slice, or {@code null} for the first slice
+     * @param size the maximum number of pets to return
+     * @return the slice of pet responses and the cursor of the following slice, if any
+     * @throws ValidationException if the cursor is malformed or the size is out of range
+     */
+    @Override
+    @Nonnull
+    @Transactional(readOnly = true)
+    public PetSliceResponse getPetsAfter(@Nullable String cursor, int size) {
+        validateSliceSize(size);
+        return toSlice(petStore.findResponsesAfter(afterId(cursor), Limit.of(size + 1)), size,
+                pet -> PetCursor.encode(pet.id()));
     }
 
     /**
-     * Updates a pet by ID.
+     * Searches pets by species, owner, age and creation/modification time, paginated by keyset like
+     * {@link #getPetsAfter(String, int)}. The filter guarantees the search can start from an index, and pets come
+     * in the order of that index, see {@link PetFilter#order()}.
+     *
+     * @param filter the search criteria
+     * @param cursor the {@code next} token of the previous slice, or {@code null} for the first slice
+     * @param size the maximum number of pets to return
+     * @return the slice of matching pets and the cursor of the following slice, if any
+     * @throws ValidationException if the cursor is malformed or the size is out of range
+     */
+    @Override
+    @Nonnull
+    @Transactional(readOnly = true)
+    public PetSliceResponse searchPets(@Nonnull PetFilter filter, @Nullable String cursor, int size) {
+        validateSliceSize(size);
+        var order = filter.order();
+        var after = cursor == null || cursor.isEmpty() ? null : PetCursor.decode(cursor, order);
+        return toSlice(petStore.search(filter, after, Limit.of(size + 1)), size,
+                pet -> PetCursor.encode(PetPosition.of(order, pet)));
+    }
+
+    /**
+     * Passes every pet, ordered by id, to the given consumer.
+     * Rows are read through a database cursor in a single read-only transaction and are never held by the persistence
+     * context, so memory use does not grow with the size of the table.
+     *
+     * @param consumer receives each pet response in turn
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportPets(@Nonnull Consumer<PetResponse> consumer) {
+        try (var pets = petStore.streamAll()) {
+            pets.forEach(consumer);
+        }
+    }
+
+    /**
+     * Updates a pet by ID with a conditional UPDATE on the version of the pet's previous state, taken from the cache
+     * or, on a miss, read first without a lock. A matched UPDATE proves the pet was exactly in that state, so the
+     * response is built from it and the request without reading the pet back.
+     * When an expected version is given the update only applies if the pet is still at that version,
+     * so concurrent writers cannot silently overwrite each other.
      *
      * @param id the pet ID
      * @param petRequest the updated pet information
+     * @param expectedVersion the version the client last saw, or {@code null} to update unconditionally
      * @return the updated pet response
      * @throws PetNotFoundException if the pet is not found
+     * @throws PetPreconditionFailedException if the pet is no longer at the expected version
+     * @throws PetAlreadyExistException if another pet already has the same name, species and owner
      * @throws GenericException if the update fails
      */
     @Override
     @Nonnull
-    public PetResponse updatePet(Long id, @Nonnull PetRequest petRequest) {
-        var existing = findPetById(id);
-        try {
-            existing.setName(petRequest.name());
-            existing.setSpecies(petRequest.species());
-            existing.setAge(petRequest.age());
-            existing.setOwnerName(petRequest.ownerName());
-            existing.setLastModified(Instant.now());
-            return petRepository.save(existing).toPetResponse();
-        } catch (Exception e) {
-            log.error("Error updating pet: {}" , e);
-            throw new GenericException(e.getMessage());
-        }
+    @CachePut(cacheNames = PETS_CACHE, key = "#id")
+    public PetResponse updatePet(Long id, @Nonnull PetRequest petRequest, @Nullable Long expectedVersion) {
+        return applyUpdate(id, expectedVersion, alreadyExistsMessage(petRequest),
+                (previous, now) -> petStore.updateByIdAndVersion(id, previous.version(), petRequest.name(),
+                        petRequest.species(), petRequest.age(), petRequest.ownerName(), now),
+                (previous, now) -> new PetResponse(id, petRequest.name(), petRequest.species(), petRequest.age(),
+                        petRequest.ownerName(), previous.createdAt(), now, previous.version() + 1));
+    }
+
+    /**
+     * Partially updates a pet by ID. Only the columns the patch sets are written, together with
+     * {@code last_modified} and the version, in a single conditional UPDATE; the response is built like
+     * {@link #updatePet(Long, PetRequest, Long)} does.
+     *
+     * @param id the pet ID
+     * @param patch the fields to change
+     * @param expectedVersion the version the client last saw, or {@code null} to update unconditionally
+     * @return the updated pet response
+     * @throws PetNotFoundException if the pet is not found
+     * @throws PetPreconditionFailedException if the pet is no longer at the expected version
+     * @throws PetAlreadyExistException if the patch makes the pet clash with another one of the same name, species and owner
+     * @throws GenericException if the update fails
+     */
+    @Override
+    @Nonnull
+    @CachePut(cacheNames = PETS_CACHE, key = "#id")
+    public PetResponse patchPet(Long id, @Nonnull PetPatch patch, @Nullable Long expectedVersion) {
+        var conflict = String.format("Pet with id: %s would have the same name, owner and species as an existing pet", id);
+        return applyUpdate(id, expectedVersion, conflict,
+                (previous, now) -> petStore.patchById(id, previous.version(), patch, now),
+                (previous, now) -> new PetResponse(id,
+                        patch.name() != null ? patch.name() : previous.name(),
+                        patch.species() != null ? patch.species() : previous.species(),
+                        patch.agePresent() ? patch.age() : previous.age(),
+                        patch.ownerName() != null ? patch.ownerName() : previous.ownerName(),
+                        previous.createdAt(), now, previous.version() + 1));
     }
 
     /**
      * Deletes a pet by ID.
+     * The pet is read and deleted in one read-write transaction, so both run on the primary, and the delete is checked
+     * against the version just read. If the pet is updated in between, the delete is attempted again on its new state.
      *
      * @param id the pet ID
      * @throws PetNotFoundException if the pet is not found
      * @throws GenericException if the deletion fails
      */
     @Override
-    @Nonnull
+    @CacheEvict(cacheNames = PETS_CACHE, key = "#id")
     public void deletePet(Long id) {
-        var petDocument = findPetById(id);
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            PetDocument deleted;
+            try {
+                deleted = transactionTemplate.execute(status -> {
+                    var petDocument = findPetById(id);
+                    petStore.delete(petDocument);
+                    return petDocument;
+                });
+            } catch (PetNotFoundException e) {
+                throw e;
+            } catch (OptimisticLockingFailureException e) {
+                continue;
+            } catch (Exception e) {
+                log.error("Error deleting pet with Id: {}, error: {}" , id, e);
+                throw new GenericException(e.getMessage());
+            }
+            petStats.deleted(deleted.toPetResponse());
+            return;
+        }
+        throw new GenericException(String.format("Pet with id: %s keeps being modified concurrently", id));
+    }
+
+    /**
+     * Returns pet counts in total and per species, and the owners with the most pets.
+     * Counts are kept up to date by the write operations, so no query is run.
+     *
+     * @return the current pet statistics
+     */
+    @Override
+    @Nonnull
+    public PetStatsResponse getStats() {
+        return petStats.snapshot();
+    }
+
+    /**
+     * Writes a pet with an UPDATE conditioned on the version of its previous state, which comes from the cache or,
+     * on a miss, from a plain read: no row is locked ahead of the UPDATE, which alone guards against concurrent
+     * writers. When the UPDATE matches nothing the state it was conditioned on was stale, and the pet is read again,
+     * which also tells a missing pet (404) apart from a pet whose version moved on (412).
+     * Each attempt is a transaction of its own, so the read of a retry is not served from the snapshot of the first
+     * one. Stats follow the pet from its exact previous state.
+     */
+    @Nonnull
+    private PetResponse applyUpdate(Long id, @Nullable Long expectedVersion, @Nonnull String conflictMessage,
+                                    @Nonnull ToIntBiFunction<PetResponse, Instant> update,
+                                    @Nonnull BiFunction<PetResponse, Instant, PetResponse> updated) {
+        var cached = cachedPet(id);
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            var known = cached != null && (expectedVersion == null || expectedVersion.equals(cached.version()))
+                    ? cached : null;
+            var pet = transactionTemplate.execute(status -> {
+                var previous = known != null ? known : currentPet(id, expectedVersion);
+                var now = now();
+                if (write(update, previous, now, conflictMessage) != 1) {
+                    return null;
+                }
+                var result = updated.apply(previous, now);
+                petStats.changed(previous, result);
+                return result;
+            });
+            if (pet != null) {
+                return pet;
+            }
+            cached = null;
+        }
+        throw new GenericException(String.format("Pet with id: %s keeps being modified concurrently", id));
+    }
+
+    /**
+     * Reads the pet about to be updated, checking it is still at the version the client expects. Versions only grow,
+     * so a pet read at another version will not come back to it.
+     */
+    @Nonnull
+    private PetResponse currentPet(Long id, @Nullable Long expectedVersion) {
+        var pet = petStore.findResponseById(id).orElseThrow(() -> notFound(id));
+        if (expectedVersion != null && !expectedVersion.equals(pet.version())) {
+            throw new PetPreconditionFailedException(
+                    String.format("Pet with id: %s has been modified, expected version: %s", id, expectedVersion));
+        }
+        return pet;
+    }
+
+    private int write(@Nonnull ToIntBiFunction<PetResponse, Instant> update, @Nonnull PetResponse previous,
+                      @Nonnull Instant now, @Nonnull String conflictMessage) {
         try {
-            petRepository.delete(petDocument);
-        }  catch (Exception e) {
-            log.error("Error deleting pet with Id: {}, error: {}" , id, e);
+            return update.applyAsInt(previous, now);
+        } catch (DataIntegrityViolationException e) {
+            if (isNaturalKeyViolation(e)) {
+                throw new PetAlreadyExistException(conflictMessage);
+            }
+            log.error("Error updating pet: {}" , e);
+            throw new GenericException(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error updating pet: {}" , e);
             throw new GenericException(e.getMessage());
         }
     }
 
+    @Nullable
+    private PetResponse cachedPet(Long id) {
+        var cache = cacheManager.getCache(PETS_CACHE);
+        return cache == null ? null : cache.get(id, PetResponse.class);
+    }
+
+    private static void validateSliceSize(int size) {
+        if (size < 1 || size > MAX_SLICE_SIZE) {
+            throw new ValidationException(String.format("size must be between 1 and %s", MAX_SLICE_SIZE));
+        }
+    }
+
+    private static long afterId(@Nullable String cursor) {
+        return cursor == null || cursor.isEmpty() ? 0L : PetCursor.decode(cursor);
+    }
+
+    /**
+     * Turns the {@code size + 1} rows fetched for a slice into the slice and the cursor of the following one.
+     */
+    @Nonnull
+    private static PetSliceResponse toSlice(@Nonnull List<PetResponse> pets, int size,
+                                            @Nonnull Function<PetResponse, String> cursor) {
+        var hasNext = pets.size() > size;
+        var content = hasNext ? pets.subList(0, size) : pets;
+        var next = hasNext ? cursor.apply(content.get(content.size() - 1)) : null;
+        return new PetSliceResponse(content, next, size);
+    }
+
     @Nonnull
     private PetDocument findPetById(Long id) {
-        return petRepository.findById(id).orElseThrow(() ->
-                new PetNotFoundException(String.format("Pet with id: %s not found", id)));
+        return petStore.findById(id).orElseThrow(() -> notFound(id));
+    }
+
+    @Nonnull
+    private static PetNotFoundException notFound(Long id) {
+        return new PetNotFoundException(String.format("Pet with id: %s not found", id));
+    }
+
+    /**
+     * Whether a write broke {@link PetDocument#NATURAL_KEY_CONSTRAINT}, i.e. another pet has the same name, species
+     * and owner. Other violations, a primary key collision among them, are not the client's fault. The constraint is
+     * recognised by name, as extracted by Hibernate or, for other drivers and the mapped store, in the error message;
+     * databases may qualify or upper-case it.
+     */
+    static boolean isNaturalKeyViolation(@Nonnull DataIntegrityViolationException e) {
+        var constraint = e.getCause() instanceof ConstraintViolationException violation
+                ? violation.getConstraintName() : null;
+        var text = constraint != null ? constraint : e.getMostSpecificCause().getMessage();
+        return text != null && text.toLowerCase(Locale.ROOT).contains(PetDocument.NATURAL_KEY_CONSTRAINT);
+    }
+
+    /**
+     * The current time at the microsecond precision the database stores, so cached responses and rows read back
+     * carry the same timestamps (and therefore the same ETags).
+     */
+    @Nonnull
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    @Nonnull
+    private static String alreadyExistsMessage(@Nonnull PetRequest pet) {
+        return String.format("Pet: %s with owner: %s for species: %s already exists", pet.name(), pet.ownerName(), pet.species());
     }
 }
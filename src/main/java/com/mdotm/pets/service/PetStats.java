@@ -0,0 +1,217 @@
+package com.mdotm.pets.service;
+
+import com.mdotm.pets.dao.PetStore;
+import com.mdotm.pets.model.OwnerCount;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.PetStatsResponse;
+import com.mdotm.pets.model.Species;
+import com.mdotm.pets.model.SpeciesCount;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Pet counts maintained incrementally by the service as pets are created, updated and deleted, so reading them
+ * needs neither a query nor a lock. Writers only touch {@link LongAdder}s, which spread contended increments over
+ * several cells. Pets are counted per species and, for a bounded set of owners, per owner.
+ * <p>
+ * Owners are only counted when they can make the top: the {@value #TRACKED_PER_TOP_OWNER} times {@code top-owners}
+ * owners with the most pets at the last reconciliation. While fewer owners than that have pets, every owner is counted,
+ * new ones included, until the set is full. An owner outside the set that quickly gains pets shows up at the next
+ * reconciliation. Memory and the cost of picking the top owners on read depend on {@code top-owners}, not on the
+ * number of owners.
+ * <p>
+ * Updates report the exact previous state of the pet, so counters only drift on changes not seen here (rows written
+ * by another instance or directly in the database, a transaction rolled back after the count was applied). They are
+ * periodically reconciled against the database as a safety net.
+ */
+@Component
+@Slf4j
+public class PetStats {
+
+    /**
+     * Owners counted for each top owner reported, so an owner just below the top is still counted when it climbs.
+     */
+    static final int TRACKED_PER_TOP_OWNER = 4;
+
+    private final PetStore petStore;
+    private final int topOwners;
+    private final int trackedOwners;
+
+    private final LongAdder total = new LongAdder();
+    private final Map<Species, LongAdder> perSpecies = new EnumMap<>(Species.class);
+
+    private volatile Owners perOwner;
+    private volatile Instant reconciledAt;
+
+    public PetStats(PetStore petStore, @Value("${pets.stats.top-owners:10}") int topOwners) {
+        this.petStore = petStore;
+        this.topOwners = topOwners;
+        this.trackedOwners = topOwners * TRACKED_PER_TOP_OWNER;
+        this.perOwner = new Owners(true);
+        for (var species : Species.values()) {
+            perSpecies.put(species, new LongAdder());
+        }
+    }
+
+    public void created(@Nonnull PetResponse pet) {
+        total.increment();
+        perSpecies.get(pet.species()).increment();
+        owner(perOwner, pet.ownerName(), LongAdder::increment);
+    }
+
+    public void deleted(@Nonnull PetResponse pet) {
+        total.decrement();
+        perSpecies.get(pet.species()).decrement();
+        owner(perOwner, pet.ownerName(), LongAdder::decrement);
+    }
+
+    /**
+     * Moves a pet from the counters of its previous state to those of its new one.
+     */
+    public void changed(@Nonnull PetResponse from, @Nonnull PetResponse to) {
+        if (from.species() != to.species()) {
+            perSpecies.get(from.species()).decrement();
+            perSpecies.get(to.species()).increment();
+        }
+        if (!Objects.equals(from.ownerName(), to.ownerName())) {
+            var owners = perOwner;
+            owner(owners, from.ownerName(), LongAdder::decrement);
+            owner(owners, to.ownerName(), LongAdder::increment);
+        }
+    }
+
+    @Nonnull
+    public PetStatsResponse snapshot() {
+        Map<Species, Long> species = new EnumMap<>(Species.class);
+        perSpecies.forEach((key, count) -> species.put(key, count.sum()));
+        return new PetStatsResponse(total.sum(), species, topOwners(), reconciledAt);
+    }
+
+    /**
+     * Replaces the counters with the database counts, keeping the changes applied while the counts were being read,
+     * and picks the owners counted until the next run. A change committed during the query may be counted twice or
+     * not at all; the next run corrects it.
+     * <p>
+     * Not read-only, so the counts come from the primary: the changes kept on top of them were committed there, and
+     * a lagging replica would have them counted twice or dropped.
+     */
+    @Scheduled(initialDelayString = "${pets.stats.reconcile-initial-delay:PT0S}",
+            fixedDelayString = "${pets.stats.reconcile-interval:PT5M}")
+    @Transactional
+    public void reconcile() {
+        long totalBefore = total.sum();
+        Map<Species, Long> speciesBefore = new EnumMap<>(Species.class);
+        perSpecies.forEach((key, count) -> speciesBefore.put(key, count.sum()));
+        var previous = perOwner;
+        Map<String, Long> ownersBefore = new HashMap<>();
+        previous.counters.forEach((key, count) -> ownersBefore.put(key, count.sum()));
+
+        Map<Species, Long> counted = new EnumMap<>(Species.class);
+        for (SpeciesCount count : petStore.countBySpecies()) {
+            counted.put(count.species(), count.count());
+        }
+        List<OwnerCount> countedOwners = petStore.findTopOwners(Limit.of(trackedOwners));
+
+        long countedTotal = counted.values().stream().mapToLong(Long::longValue).sum();
+        adjust(total, totalBefore, countedTotal);
+        perSpecies.forEach((key, count) -> adjust(count, speciesBefore.get(key), counted.getOrDefault(key, 0L)));
+
+        // fewer owners than can be tracked means every owner with pets was counted
+        var owners = new Owners(countedOwners.size() < trackedOwners);
+        countedOwners.forEach(count -> owners.counters.put(count.ownerName(), adder(count.count())));
+        perOwner = owners;
+        // writers now count on the new set; carry over what they counted on the previous one during the query
+        previous.counters.forEach((owner, count) -> {
+            long changed = count.sum() - ownersBefore.getOrDefault(owner, 0L);
+            if (changed != 0) {
+                owner(owners, owner, counter -> counter.add(changed));
+            }
+        });
+        reconciledAt = Instant.now();
+        log.debug("Reconciled pet stats: total {} (was {})", countedTotal, totalBefore);
+    }
+
+    /**
+     * Applies a change to the counter of an owner that is counted, or can be: an owner outside a full set is left
+     * out until the next reconciliation.
+     */
+    private void owner(@Nonnull Owners owners, @Nullable String ownerName, @Nonnull Consumer<LongAdder> change) {
+        if (ownerName == null) {
+            return;
+        }
+        var counter = owners.counters.get(ownerName);
+        if (counter == null && owners.complete) {
+            if (owners.counters.size() < trackedOwners) {
+                counter = owners.counters.computeIfAbsent(ownerName, key -> new LongAdder());
+            } else {
+                // the owners that now miss a counter may have pets the set no longer learns about
+                owners.complete = false;
+            }
+        }
+        if (counter != null) {
+            change.accept(counter);
+        }
+    }
+
+    /**
+     * The owners with the most pets, largest first, among the counted ones.
+     */
+    @Nonnull
+    private List<OwnerCount> topOwners() {
+        return perOwner.counters.entrySet().stream()
+                .map(entry -> new OwnerCount(entry.getKey(), entry.getValue().sum()))
+                .filter(count -> count.count() > 0)
+                .sorted(Comparator.comparingLong(OwnerCount::count).reversed().thenComparing(OwnerCount::ownerName))
+                .limit(topOwners)
+                .toList();
+    }
+
+    /**
+     * Moves a counter from the value it had before reconciliation to the counted one, without losing the
+     * increments made in between.
+     */
+    private static void adjust(@Nonnull LongAdder counter, long before, long counted) {
+        counter.add(counted - before);
+    }
+
+    @Nonnull
+    private static LongAdder adder(long value) {
+        var adder = new LongAdder();
+        adder.add(value);
+        return adder;
+    }
+
+    /**
+     * The owners counted between two reconciliations.
+     */
+    private static final class Owners {
+
+        private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+        /**
+         * Whether every owner with pets has a counter, so a new owner can start counting from zero.
+         */
+        private volatile boolean complete;
+
+        Owners(boolean complete) {
+            this.complete = complete;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.mdotm.pets.service;
+
+import com.mdotm.pets.model.PetRequest;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.PetSliceResponse;
+import com.mdotm.pets.model.PetVersion;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link PetService}, backing the API of the {@code reactive} profile.
+ */
+public interface ReactivePetService {
+
+    Mono<PetResponse> createPet(PetRequest pet);
+
+    Mono<PetResponse> getPet(Long id);
+
+    Mono<PetVersion> getPetVersion(Long id);
+
+    Mono<Page<PetResponse>> getAllPets(Pageable pageable);
+
+    Mono<PetSliceResponse> getPetsAfter(String cursor, int size);
+
+    Mono<PetResponse> updatePet(Long id, PetRequest pet, Long expectedVersion);
+
+    Mono<Void> deletePet(Long id);
+
+}
@@ -0,0 +1,230 @@
+package com.mdotm.pets.service;
+
+import com.mdotm.pets.dao.ReactivePetRepository;
+import com.mdotm.pets.exception.GenericException;
+import com.mdotm.pets.exception.PetAlreadyExistException;
+import com.mdotm.pets.exception.PetNotFoundException;
+import com.mdotm.pets.exception.PetPreconditionFailedException;
+import com.mdotm.pets.exception.ValidationException;
+import com.mdotm.pets.model.PetCursor;
+import com.mdotm.pets.model.PetRequest;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.PetSliceResponse;
+import com.mdotm.pets.model.PetVersion;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+@Service
+@Slf4j
+@Profile("reactive")
+public class ReactivePetServiceImpl implements ReactivePetService {
+
+    /**
+     * Times an update is attempted when the pet changes between reading and writing it.
+     */
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
+
+    private final ReactivePetRepository petRepository;
+    private final PetStats petStats;
+
+    public ReactivePetServiceImpl(ReactivePetRepository petRepository, PetStats petStats) {
+        this.petRepository = petRepository;
+        this.petStats = petStats;
+    }
+
+    /**
+     * Creates a new pet with a single INSERT, relying on the unique index on name, species and owner
+     * to reject duplicates like {@link PetServiceImpl#createPet}.
+     *
+     * @param pet the pet request object containing details
+     * @return the created pet response
+     * @throws PetAlreadyExistException if a pet with the same name, species, and owner already exists
+     * @throws GenericException if saving the pet fails
+     */
+    @Override
+    @Nonnull
+    public Mono<PetResponse> createPet(@Nonnull PetRequest pet) {
+        return petRepository.insert(pet.name(), pet.species(), pet.age(), pet.ownerName(), now())
+                .onErrorMap(e -> {
+                    if (e instanceof DataIntegrityViolationException violation
+                            && PetServiceImpl.isNaturalKeyViolation(violation)) {
+                        return new PetAlreadyExistException(alreadyExistsMessage(pet));
+                    }
+                    log.error("Error saving pet", e);
+                    return new GenericException("Failed to save pet");
+                })
+                .doOnNext(petStats::created);
+    }
+
+    /**
+     * Retrieves a pet by its ID.
+     *
+     * @param id the pet ID
+     * @return the pet response
+     * @throws PetNotFoundException if the pet is not found
+     */
+    @Override
+    @Nonnull
+    public Mono<PetResponse> getPet(Long id) {
+        return petRepository.findResponseById(id).switchIfEmpty(Mono.error(() -> notFound(id)));
+    }
+
+    /**
+     * Retrieves the current version and modification time of a pet, reading only those two columns.
+     *
+     * @param id the pet ID
+     * @return the version of the pet
+     * @throws PetNotFoundException if the pet is not found
+     */
+    @Override
+    @Nonnull
+    public Mono<PetVersion> getPetVersion(Long id) {
+        return petRepository.findVersionById(id).switchIfEmpty(Mono.error(() -> notFound(id)));
+    }
+
+    /**
+     * Retrieves all pets in a paginated format, ordered by id. The page and the total count are queried concurrently.
+     *
+     * @param pageable the pagination information, its sort is ignored
+     * @return a page of pet responses
+     */
+    @Override
+    @Nonnull
+    public Mono<Page<PetResponse>> getAllPets(@Nonnull Pageable pageable) {
+        return Mono.zip(petRepository.findAll(pageable.getOffset(), pageable.getPageSize()).collectList(),
+                        petRepository.count())
+                .map(pageAndTotal -> new PageImpl<>(pageAndTotal.getT1(), pageable, pageAndTotal.getT2()));
+    }
+
+    /**
+     * Retrieves the slice of pets that follows the given cursor, ordered by id, like {@link PetServiceImpl#getPetsAfter}.
+     *
+     * @param cursor the {@code next} token of the previous slice, or {@code null} for the first slice
+     * @param size the maximum number of pets to return
+     * @return the slice of pet responses and the cursor of the following slice, if any
+     * @throws ValidationException if the cursor is malformed or the size is out of range
+     */
+    @Override
+    @Nonnull
+    public Mono<PetSliceResponse> getPetsAfter(@Nullable String cursor, int size) {
+        return Mono.defer(() -> {
+            if (size < 1 || size > PetServiceImpl.MAX_SLICE_SIZE) {
+                throw new ValidationException(String.format("size must be between 1 and %s", PetServiceImpl.MAX_SLICE_SIZE));
+            }
+            long afterId = cursor == null || cursor.isEmpty() ? 0L : PetCursor.decode(cursor);
+            return petRepository.findResponsesAfter(afterId, size + 1).collectList().map(pets -> toSlice(pets, size));
+        });
+    }
+
+    /**
+     * Updates a pet by ID with an UPDATE conditioned on the version just read, like {@link PetServiceImpl#updatePet}:
+     * the response is built from the pet read and the request, and the pet is read again if the UPDATE misses.
+     *
+     * @param id the pet ID
+     * @param petRequest the updated pet information
+     * @param expectedVersion the version the client last saw, or {@code null} to update unconditionally
+     * @return the updated pet response
+     * @throws PetNotFoundException if the pet is not found
+     * @throws PetPreconditionFailedException if the pet is no longer at the expected version
+     * @throws PetAlreadyExistException if another pet already has the same name, species and owner
+     * @throws GenericException if the update fails
+     */
+    @Override
+    @Nonnull
+    public Mono<PetResponse> updatePet(Long id, @Nonnull PetRequest petRequest, @Nullable Long expectedVersion) {
+        return updatePet(id, petRequest, expectedVersion, 1);
+    }
+
+    @Nonnull
+    private Mono<PetResponse> updatePet(Long id, @Nonnull PetRequest petRequest, @Nullable Long expectedVersion,
+                                        int attempt) {
+        return getPet(id).flatMap(previous -> {
+            if (expectedVersion != null && !expectedVersion.equals(previous.version())) {
+                return Mono.error(new PetPreconditionFailedException(String.format(
+                        "Pet with id: %s has been modified, expected version: %s", id, expectedVersion)));
+            }
+            var now = now();
+            return petRepository.update(id, previous.version(), petRequest.name(), petRequest.species(),
+                            petRequest.age(), petRequest.ownerName(), now)
+                    .onErrorMap(e -> {
+                        if (e instanceof DataIntegrityViolationException violation
+                                && PetServiceImpl.isNaturalKeyViolation(violation)) {
+                            return new PetAlreadyExistException(alreadyExistsMessage(petRequest));
+                        }
+                        log.error("Error updating pet: {}", e);
+                        return new GenericException(e.getMessage());
+                    })
+                    .flatMap(updated -> {
+                        if (updated > 0) {
+                            var pet = new PetResponse(id, petRequest.name(), petRequest.species(), petRequest.age(),
+                                    petRequest.ownerName(), previous.createdAt(), now, previous.version() + 1);
+                            petStats.changed(previous, pet);
+                            return Mono.just(pet);
+                        }
+                        if (attempt < MAX_UPDATE_ATTEMPTS) {
+                            return updatePet(id, petRequest, expectedVersion, attempt + 1);
+                        }
+                        return Mono.error(new GenericException(
+                                String.format("Pet with id: %s keeps being modified concurrently", id)));
+                    });
+        });
+    }
+
+    /**
+     * Deletes a pet by ID.
+     *
+     * @param id the pet ID
+     * @throws PetNotFoundException if the pet is not found
+     * @throws GenericException if the deletion fails
+     */
+    @Override
+    @Nonnull
+    public Mono<Void> deletePet(Long id) {
+        return getPet(id).flatMap(pet -> petRepository.deleteById(id)
+                .onErrorMap(e -> {
+                    log.error("Error deleting pet with Id: {}, error: {}", id, e);
+                    return new GenericException(e.getMessage());
+                })
+                .doOnNext(deleted -> {
+                    if (deleted > 0) {
+                        petStats.deleted(pet);
+                    }
+                }))
+                .then();
+    }
+
+    @Nonnull
+    private static PetSliceResponse toSlice(@Nonnull List<PetResponse> pets, int size) {
+        var hasNext = pets.size() > size;
+        var content = hasNext ? pets.subList(0, size) : pets;
+        var next = hasNext ? PetCursor.encode(content.get(content.size() - 1).id()) : null;
+        return new PetSliceResponse(content, next, size);
+    }
+
+    @Nonnull
+    private static PetNotFoundException notFound(Long id) {
+        return new PetNotFoundException(String.format("Pet with id: %s not found", id));
+    }
+
+    @Nonnull
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    @Nonnull
+    private static String alreadyExistsMessage(@Nonnull PetRequest pet) {
+        return String.format("Pet: %s with owner: %s for species: %s already exists", pet.name(), pet.ownerName(), pet.species());
+    }
+}
@@ -0,0 +1,36 @@
+package com.mdotm.pets.api;
+
+import com.mdotm.pets.service.PetServiceImpl;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the API tests against the embedded storage of the {@code mapped} profile, which must behave like the database.
+ */
+@ActiveProfiles("mapped")
+@TestPropertySource(properties = "pets.mapped.path=target/mapped-test/pets.log")
+public class MappedPetControllerIntegrationTest extends PetControllerIntegrationTest {
+
+    /**
+     * The embedded storage is not a Spring Data repository, so only the service timer records its calls.
+     */
+    @Override
+    @Test
+    public void repository_Calls_Are_Timed() throws Exception {
+        Timer timer = meterRegistry.find(PetServiceImpl.SERVICE_TIMER).tags("method", "getPet", "exception", "none").timer();
+        long before = timer == null ? 0 : timer.count();
+
+        mockMvc.perform(get(API_PATH + "/" + PET_ID))
+                .andExpect(status().isOk());
+
+        timer = meterRegistry.find(PetServiceImpl.SERVICE_TIMER).tags("method", "getPet", "exception", "none").timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(before + 1);
+    }
+}
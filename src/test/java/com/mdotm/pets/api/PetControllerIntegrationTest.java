@@ -1,37 +1,83 @@
 package com.mdotm.pets.api;
 
-import com.mdotm.pets.dao.PetRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.jayway.jsonpath.JsonPath;
+import com.mdotm.pets.config.BinaryFormatConfig;
+import com.mdotm.pets.dao.PetStore;
+import com.mdotm.pets.exception.PetExceptionHandler;
 import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.service.PetImporter;
+import com.mdotm.pets.service.PetServiceImpl;
+import com.mdotm.pets.service.PetStats;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
+
 import static com.mdotm.pets.model.Species.CAT;
 import static com.mdotm.pets.model.Species.DOG;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
 public class PetControllerIntegrationTest {
 
-    private final String API_PATH = "/api/v1/pets";
-    private Long PET_ID;
+    protected final String API_PATH = "/api/v1/pets";
+    protected Long PET_ID;
+    private Long TOMMY_ID;
+
+    @Autowired
+    protected MockMvc mockMvc;
+
+    @Autowired
+    private PetStore petStore;
 
     @Autowired
-    private MockMvc mockMvc;
+    protected MeterRegistry meterRegistry;
 
     @Autowired
-    private PetRepository petRepository;
+    private PetStats petStats;
 
     @BeforeEach
     public void setUp() {
@@ -44,7 +90,8 @@ public class PetControllerIntegrationTest {
                 3,
                 "Mike",
                 now,
-                now
+                now,
+                null
         );
         PetDocument pet2 = new PetDocument(
                 null,
@@ -53,15 +100,19 @@ public class PetControllerIntegrationTest {
                 0,
                 "Alessia",
                 now,
-                now
+                now,
+                null
         );
-        PET_ID = petRepository.save(pet).toPetResponse().id();
-        petRepository.save(pet2);
+        PET_ID = petStore.saveAndFlush(pet).toPetResponse().id();
+        TOMMY_ID = petStore.saveAndFlush(pet2).getId();
     }
 
     @AfterEach
     public void cleanUp() {
-        petRepository.deleteAll();
+        List<PetResponse> pets;
+        while (!(pets = petStore.findResponsesAfter(0L, Limit.of(1000))).isEmpty()) {
+            pets.forEach(pet -> petStore.findById(pet.id()).ifPresent(petStore::delete));
+        }
     }
 
 
@@ -179,6 +230,28 @@ public class PetControllerIntegrationTest {
                 .andExpect(jsonPath("$.owner_name").value("Mike"));
     }
 
+    @Test
+    public void getPets_byIds_OK() throws Exception {
+        mockMvc.perform(get(API_PATH).param("ids", TOMMY_ID + ",123456," + PET_ID + "," + TOMMY_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content.[0].name").value("tommy"))
+                .andExpect(jsonPath("$.content.[1].name").value("lilli"))
+                .andExpect(jsonPath("$.missing_ids.length()").value(1))
+                .andExpect(jsonPath("$.missing_ids.[0]").value(123456));
+    }
+
+    @Test
+    public void getPets_byIds_Too_Many_KO() throws Exception {
+        var ids = LongStream.rangeClosed(1, PetServiceImpl.MAX_LOOKUP_SIZE + 1)
+                .mapToObj(Long::toString)
+                .collect(Collectors.joining(","));
+
+        mockMvc.perform(get(API_PATH).param("ids", ids))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error_code").value("VALIDATION_ERROR"));
+    }
+
     @Test
     public void getPet_NOT_Found_KO() throws Exception {
         mockMvc.perform(get(API_PATH + "/" + 123456 ))
@@ -256,4 +329,584 @@ public class PetControllerIntegrationTest {
                 .andExpect(jsonPath("$.error_code").value("NOT_FOUND_ERROR"))
                 .andExpect(jsonPath("$.error_message").value("Pet with id: 44444 not found"));
     }
+
+    @Test
+    public void getPet_after_update_returns_updated_OK() throws Exception {
+        String requestBody = """
+        {
+            "name": "tom",
+            "species": "MONKEY",
+            "age": 2,
+            "owner_name": "Pepe"
+        }
+        """;
+
+        //warm the cache with the original pet
+        mockMvc.perform(get(API_PATH + "/" + PET_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("lilli"));
+
+        mockMvc.perform(put(API_PATH + "/" + PET_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(API_PATH + "/" + PET_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("tom"))
+                .andExpect(jsonPath("$.species").value("MONKEY"))
+                .andExpect(jsonPath("$.owner_name").value("Pepe"));
+    }
+
+    @Test
+    public void getPet_after_delete_NOT_Found_KO() throws Exception {
+        //warm the cache with the pet
+        mockMvc.perform(get(API_PATH + "/" + PET_ID))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete(API_PATH + "/" + PET_ID))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get(API_PATH + "/" + PET_ID))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error_code").value("NOT_FOUND_ERROR"));
+    }
+
+    @Test
+    public void scrollPets_OK() throws Exception {
+        String next = JsonPath.read(mockMvc.perform(get(API_PATH + "/scroll").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content.[0].name").value("lilli"))
+                .andExpect(jsonPath("$.next").isNotEmpty())
+                .andReturn().getResponse().getContentAsString(), "$.next");
+
+        mockMvc.perform(get(API_PATH + "/scroll").param("size", "1").param("cursor", next))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content.[0].name").value("tommy"))
+                .andExpect(jsonPath("$.next").isEmpty());
+    }
+
+    @Test
+    public void scrollPets_Invalid_Cursor_KO() throws Exception {
+        mockMvc.perform(get(API_PATH + "/scroll").param("cursor", "%%%"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error_code").value("VALIDATION_ERROR"))
+                .andExpect(jsonPath("$.error_message").value("invalid cursor"));
+    }
+
+    @Test
+    public void createPets_batch_OK() throws Exception {
+        String requestBody = """
+        [
+            {"name": "tommy", "species": "DOG", "age": 0, "owner_name": "Alessia"},
+            {"name": "bella", "species": "CAT", "age": 1, "owner_name": "Alberto"},
+            {"name": "bella", "species": "CAT", "age": 1, "owner_name": "Alberto"}
+        ]
+        """;
+
+        mockMvc.perform(post(API_PATH + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$.[0].status").value(409))
+                .andExpect(jsonPath("$.[0].error.error_code").value("ALREADY_EXIST_ERROR"))
+                .andExpect(jsonPath("$.[1].status").value(200))
+                .andExpect(jsonPath("$.[1].pet.name").value("bella"))
+                .andExpect(jsonPath("$.[2].status").value(409));
+    }
+
+    @Test
+    public void createPet_Concurrent_Same_Pet_Only_One_Created() throws Exception {
+        String requestBody = """
+        {
+            "name": "rocky",
+            "species": "DOG",
+            "age": 4,
+            "owner_name": "Giulia"
+        }
+        """;
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                statuses.add(executor.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(post(API_PATH)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(requestBody))
+                            .andReturn().getResponse().getStatus();
+                }));
+            }
+            start.countDown();
+
+            int created = 0;
+            int conflicts = 0;
+            for (Future<Integer> status : statuses) {
+                int code = status.get(30, TimeUnit.SECONDS);
+                if (code == 200) {
+                    created++;
+                } else if (code == 409) {
+                    conflicts++;
+                }
+            }
+            assertThat(created).isEqualTo(1);
+            assertThat(conflicts).isEqualTo(threads - 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void exportPets_OK() throws Exception {
+        MvcResult result = mockMvc.perform(get(API_PATH + "/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // pets.export.timeout, not the default async timeout
+        assertThat(result.getRequest().getAsyncContext().getTimeout()).isEqualTo(Duration.ofHours(1).toMillis());
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(JsonPath.<String>read(lines[0], "$.name")).isEqualTo("lilli");
+        assertThat(JsonPath.<String>read(lines[1], "$.name")).isEqualTo("tommy");
+    }
+
+    @Test
+    public void exportPets_Gzip_OK() throws Exception {
+        MvcResult result = mockMvc.perform(get(API_PATH + "/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            String[] lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+            assertThat(lines).hasSize(2);
+        }
+    }
+
+    @Test
+    public void importPets_OK() throws Exception {
+        String requestBody = """
+        {"name": "bella", "species": "CAT", "age": 1, "owner_name": "Alberto"}
+        {"name": "rex", "species": "DOG", "age": -1, "owner_name": "Alberto"}
+
+        {"name": "tommy", "species": "DOG", "age": 0, "owner_name": "Alessia"}
+        {"name": "nemo", "species": "FISH", "age": 2, "owner_name": "Marlin"}
+        """;
+
+        mockMvc.perform(post(API_PATH + "/import")
+                        .param("chunk_size", "2")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lines").value(4))
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.errors.[0].line").value(2))
+                .andExpect(jsonPath("$.errors.[0].error.error_code").value("VALIDATION_ERROR"))
+                .andExpect(jsonPath("$.errors.[0].error.error_message").value("age must be greater then or equal to zero"))
+                .andExpect(jsonPath("$.errors.[1].line").value(4))
+                .andExpect(jsonPath("$.errors.[1].error.error_code").value("ALREADY_EXIST_ERROR"));
+
+        mockMvc.perform(get(API_PATH))
+                .andExpect(jsonPath("$.totalElements").value(4));
+    }
+
+    @Test
+    public void importPets_Null_And_Too_Long_Lines_KO() throws Exception {
+        String requestBody = "null\r\n"
+                + "{\"name\": \"" + "b".repeat(PetImporter.MAX_LINE_LENGTH) + "\", \"species\": \"CAT\", \"age\": 1, \"owner_name\": \"Alberto\"}\n"
+                + "{\"name\": \"bella\", \"species\": \"CAT\", \"age\": 1, \"owner_name\": \"Alberto\"}\r\n";
+
+        mockMvc.perform(post(API_PATH + "/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lines").value(3))
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.errors.[0].line").value(1))
+                .andExpect(jsonPath("$.errors.[0].error.error_code").value("VALIDATION_ERROR"))
+                .andExpect(jsonPath("$.errors.[1].line").value(2))
+                .andExpect(jsonPath("$.errors.[1].error.error_code").value("VALIDATION_ERROR"))
+                .andExpect(jsonPath("$.errors.[1].error.error_message")
+                        .value("line must not be longer than " + PetImporter.MAX_LINE_LENGTH + " characters"));
+    }
+
+    @Test
+    public void errors_Are_Counted_By_Error_Code() throws Exception {
+        double before = meterRegistry.counter(PetExceptionHandler.ERRORS_COUNTER, "error_code", "NOT_FOUND_ERROR").count();
+
+        mockMvc.perform(get(API_PATH + "/" + 123456))
+                .andExpect(status().isNotFound());
+
+        assertThat(meterRegistry.counter(PetExceptionHandler.ERRORS_COUNTER, "error_code", "NOT_FOUND_ERROR").count())
+                .isEqualTo(before + 1);
+        assertThat(meterRegistry.find(PetServiceImpl.SERVICE_TIMER).tag("method", "getPet").timer())
+                .isNotNull();
+    }
+
+    @Test
+    public void repository_Calls_Are_Timed() throws Exception {
+        mockMvc.perform(get(API_PATH + "/" + PET_ID))
+                .andExpect(status().isOk());
+
+        assertThat(meterRegistry.find("spring.data.repository.invocations").tag("method", "findResponseById").timer())
+                .isNotNull();
+    }
+
+    @Test
+    public void getPet_Not_Modified_OK() throws Exception {
+        String eTag = mockMvc.perform(get(API_PATH + "/" + PET_ID))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).isNotNull();
+
+        mockMvc.perform(get(API_PATH + "/" + PET_ID).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void getPet_ETag_Per_Encoding_OK() throws Exception {
+        String jsonETag = mockMvc.perform(get(API_PATH + "/" + PET_ID))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String cborETag = mockMvc.perform(get(API_PATH + "/" + PET_ID).accept(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(cborETag).isNotNull().doesNotStartWith("W/").isNotEqualTo(jsonETag);
+
+        mockMvc.perform(get(API_PATH + "/" + PET_ID).accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, cborETag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get(API_PATH + "/" + PET_ID).header(HttpHeaders.IF_NONE_MATCH, cborETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, jsonETag));
+
+        mockMvc.perform(put(API_PATH + "/" + PET_ID)
+                        .header(HttpHeaders.IF_MATCH, cborETag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content("""
+                        {"name": "tom", "species": "MONKEY", "age": 2, "owner_name": "Pepe"}
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.ETAG, endsWith("-cbor\"")));
+    }
+
+    @Test
+    public void getPet_Cbor_OK() throws Exception {
+        byte[] body = mockMvc.perform(get(API_PATH + "/" + PET_ID).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode pet = new CBORMapper().readTree(body);
+        assertThat(pet.get("name").asText()).isEqualTo("lilli");
+        assertThat(pet.get("owner_name").asText()).isEqualTo("Mike");
+    }
+
+    @Test
+    public void getAllPets_Smile_OK() throws Exception {
+        byte[] body = mockMvc.perform(get(API_PATH).accept(BinaryFormatConfig.APPLICATION_SMILE_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BinaryFormatConfig.APPLICATION_SMILE_VALUE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode page = new SmileMapper().readTree(body);
+        assertThat(page.get("content")).hasSize(2);
+        assertThat(page.get("content").get(1).get("name").asText()).isEqualTo("tommy");
+    }
+
+    @Test
+    public void getPet_NOT_Found_Cbor_KO() throws Exception {
+        byte[] body = mockMvc.perform(get(API_PATH + "/" + 123456).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode error = new CBORMapper().readTree(body);
+        assertThat(error.get("error_code").asText()).isEqualTo("NOT_FOUND_ERROR");
+    }
+
+    @Test
+    public void getPet_Modified_After_Update_OK() throws Exception {
+        String eTag = mockMvc.perform(get(API_PATH + "/" + PET_ID))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(put(API_PATH + "/" + PET_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        {"name": "tom", "species": "MONKEY", "age": 2, "owner_name": "Pepe"}
+                        """))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(API_PATH + "/" + PET_ID).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("tom"));
+    }
+
+    @Test
+    public void getAllPets_Not_Modified_OK() throws Exception {
+        var response = mockMvc.perform(get(API_PATH))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        String eTag = response.getHeader(HttpHeaders.ETAG);
+        String lastModified = response.getHeader(HttpHeaders.LAST_MODIFIED);
+        assertThat(eTag).startsWith("W/");
+        assertThat(lastModified).isNotNull();
+
+        mockMvc.perform(get(API_PATH).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get(API_PATH).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void getAllPets_And_Scroll_Last_Modified_Is_Latest_Pet_OK() throws Exception {
+        mockMvc.perform(patch(API_PATH + "/" + PET_ID)
+                        .contentType("application/merge-patch+json")
+                        .content("""
+                        {"age": 5}
+                        """))
+                .andExpect(status().isOk());
+        var latest = petStore.findResponseById(PET_ID).orElseThrow().lastModified().truncatedTo(ChronoUnit.SECONDS);
+
+        mockMvc.perform(get(API_PATH))
+                .andExpect(status().isOk())
+                .andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED, latest.toEpochMilli()));
+        mockMvc.perform(get(API_PATH + "/scroll"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, startsWith("W/")))
+                .andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED, latest.toEpochMilli()));
+        mockMvc.perform(get(API_PATH + "?page=5"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    public void updatePet_If_Match_Current_Version_OK() throws Exception {
+        String eTag = mockMvc.perform(get(API_PATH + "/" + PET_ID))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        String newETag = mockMvc.perform(put(API_PATH + "/" + PET_ID)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        {"name": "tom", "species": "MONKEY", "age": 2, "owner_name": "Pepe"}
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("tom"))
+                .andExpect(jsonPath("$.version").doesNotExist())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(newETag).isNotNull().isNotEqualTo(eTag);
+    }
+
+    @Test
+    public void updatePet_If_Match_Stale_Version_KO() throws Exception {
+        String eTag = mockMvc.perform(get(API_PATH + "/" + PET_ID))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(put(API_PATH + "/" + PET_ID)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        {"name": "tom", "species": "MONKEY", "age": 2, "owner_name": "Pepe"}
+                        """))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(put(API_PATH + "/" + PET_ID)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        {"name": "jerry", "species": "MONKEY", "age": 2, "owner_name": "Pepe"}
+                        """))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.error_code").value("PRECONDITION_FAILED_ERROR"));
+
+        mockMvc.perform(get(API_PATH + "/" + PET_ID))
+                .andExpect(jsonPath("$.name").value("tom"));
+    }
+
+    @Test
+    public void patchPet_Only_Given_Fields_OK() throws Exception {
+        mockMvc.perform(patch(API_PATH + "/" + PET_ID)
+                        .contentType("application/merge-patch+json")
+                        .content("""
+                        {"age": 5}
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.name").value("lilli"))
+                .andExpect(jsonPath("$.species").value("CAT"))
+                .andExpect(jsonPath("$.age").value(5))
+                .andExpect(jsonPath("$.owner_name").value("Mike"));
+
+        mockMvc.perform(patch(API_PATH + "/" + PET_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        {"age": null, "owner_name": "Anna"}
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.age").isEmpty())
+                .andExpect(jsonPath("$.owner_name").value("Anna"));
+
+        mockMvc.perform(get(API_PATH + "/" + PET_ID))
+                .andExpect(jsonPath("$.name").value("lilli"))
+                .andExpect(jsonPath("$.owner_name").value("Anna"));
+    }
+
+    @Test
+    public void patchPet_Invalid_Field_KO() throws Exception {
+        mockMvc.perform(patch(API_PATH + "/" + PET_ID)
+                        .contentType("application/merge-patch+json")
+                        .content("""
+                        {"age": -1}
+                        """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error_code").value("VALIDATION_ERROR"));
+
+        mockMvc.perform(patch(API_PATH + "/" + PET_ID)
+                        .contentType("application/merge-patch+json")
+                        .content("""
+                        {"name": null}
+                        """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error_code").value("VALIDATION_ERROR"));
+    }
+
+    @Test
+    public void patchPet_NOT_Found_KO() throws Exception {
+        mockMvc.perform(patch(API_PATH + "/44345")
+                        .contentType("application/merge-patch+json")
+                        .content("""
+                        {"age": 5}
+                        """))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void searchPets_OK() throws Exception {
+        mockMvc.perform(get(API_PATH + "/search").param("species", "CAT"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].name").value("lilli"));
+
+        mockMvc.perform(get(API_PATH + "/search")
+                        .param("owner_name", "Alessia")
+                        .param("species", "DOG")
+                        .param("max_age", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].name").value("tommy"));
+
+        mockMvc.perform(get(API_PATH + "/search")
+                        .param("species", "CAT")
+                        .param("min_age", "4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(0));
+
+        mockMvc.perform(get(API_PATH + "/search")
+                        .param("created_from", Instant.now().minusSeconds(3600).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2));
+    }
+
+    @Test
+    public void searchPets_Pages_In_Index_Order() throws Exception {
+        mockMvc.perform(post(API_PATH + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        [
+                            {"name": "old", "species": "CAT", "age": 9, "owner_name": "Mike"},
+                            {"name": "young", "species": "CAT", "age": 1, "owner_name": "Mike"},
+                            {"name": "middle", "species": "CAT", "age": 5, "owner_name": "Mike"}
+                        ]
+                        """))
+                .andExpect(status().isOk());
+
+        // an age range pages on (age, id)
+        String next = JsonPath.read(mockMvc.perform(get(API_PATH + "/search")
+                        .param("species", "CAT")
+                        .param("min_age", "1")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("young"))
+                .andExpect(jsonPath("$.content[1].name").value("lilli"))
+                .andReturn().getResponse().getContentAsString(), "$.next");
+        mockMvc.perform(get(API_PATH + "/search")
+                        .param("species", "CAT")
+                        .param("min_age", "1")
+                        .param("size", "2")
+                        .param("cursor", next))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("middle"))
+                .andExpect(jsonPath("$.content[1].name").value("old"))
+                .andExpect(jsonPath("$.next").isEmpty());
+
+        // equality on the species pages on id, which rejects the age cursor
+        mockMvc.perform(get(API_PATH + "/search")
+                        .param("species", "CAT"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].name").value(contains("lilli", "old", "young", "middle")));
+        mockMvc.perform(get(API_PATH + "/search")
+                        .param("species", "CAT")
+                        .param("cursor", next))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void searchPets_Without_Indexed_Filter_KO() throws Exception {
+        mockMvc.perform(get(API_PATH + "/search").param("min_age", "1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error_code").value("VALIDATION_ERROR"));
+    }
+
+    @Test
+    public void getStats_Counts_Follow_Writes() throws Exception {
+        petStats.reconcile();
+
+        mockMvc.perform(get(API_PATH + "/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.species.CAT").value(1))
+                .andExpect(jsonPath("$.species.DOG").value(1))
+                .andExpect(jsonPath("$.top_owners.length()").value(2));
+
+        mockMvc.perform(post(API_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        {"name": "rex", "species": "DOG", "age": 4, "owner_name": "Mike"}
+                        """))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(API_PATH + "/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.top_owners[0].owner_name").value("Mike"))
+                .andExpect(jsonPath("$.top_owners[0].count").value(2));
+        mockMvc.perform(delete(API_PATH + "/" + PET_ID))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get(API_PATH + "/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.species.CAT").value(0))
+                .andExpect(jsonPath("$.species.DOG").value(2));
+    }
 }
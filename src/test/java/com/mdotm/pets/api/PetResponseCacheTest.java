@@ -0,0 +1,86 @@
+package com.mdotm.pets.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.mdotm.pets.model.PetResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Instant;
+
+import static com.mdotm.pets.model.Species.CAT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PetResponseCacheTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void encode_Serves_Cached_Bytes_Until_Pet_Changes() throws Exception {
+        PetResponseCache cache = cache(DataSize.ofMegabytes(1));
+        PetResponse pet = pet(1L, 0L);
+
+        byte[] first = cache.encode(pet, MediaType.APPLICATION_JSON);
+        byte[] second = cache.encode(pet, MediaType.APPLICATION_JSON);
+        byte[] updated = cache.encode(pet(1L, 1L), MediaType.APPLICATION_JSON);
+
+        assertThat(second).isSameAs(first);
+        assertThat(updated).isNotSameAs(first);
+        assertThat(objectMapper().readTree(first).get("name").asText()).isEqualTo("lilli");
+        assertThat(meterRegistry.get("cache.gets").tag("cache", PetResponseCache.CACHE_NAME).tag("result", "hit")
+                .functionCounter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(PetResponseCache.BYTES_GAUGE).gauge().value()).isPositive();
+    }
+
+    @Test
+    public void invalidate_Drops_Every_Encoding() {
+        PetResponseCache cache = cache(DataSize.ofMegabytes(1));
+        PetResponse pet = pet(1L, 0L);
+        byte[] json = cache.encode(pet, MediaType.APPLICATION_JSON);
+        byte[] cbor = cache.encode(pet, MediaType.APPLICATION_CBOR);
+
+        cache.invalidate(1L);
+
+        assertThat(cache.encode(pet, MediaType.APPLICATION_JSON)).isNotSameAs(json).isEqualTo(json);
+        assertThat(cache.encode(pet, MediaType.APPLICATION_CBOR)).isNotSameAs(cbor).isEqualTo(cbor);
+    }
+
+    @Test
+    public void negotiate_Picks_Highest_Quality_Encoding() {
+        PetResponseCache cache = cache(DataSize.ofMegabytes(1));
+
+        assertThat(cache.negotiate(null)).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(cache.negotiate("*/*")).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(cache.negotiate("application/cbor")).isEqualTo(MediaType.APPLICATION_CBOR);
+        assertThat(cache.negotiate("application/json;q=0.5, application/x-jackson-smile"))
+                .isEqualTo(MediaType.valueOf("application/x-jackson-smile"));
+    }
+
+    private PetResponseCache cache(DataSize maxSize) {
+        return new PetResponseCache(objectMapper(),
+                new MappingJackson2CborHttpMessageConverter(builder().factory(new CBORFactory()).build()),
+                new MappingJackson2SmileHttpMessageConverter(builder().factory(new SmileFactory()).build()),
+                meterRegistry, maxSize);
+    }
+
+    private static ObjectMapper objectMapper() {
+        return builder().build();
+    }
+
+    private static Jackson2ObjectMapperBuilder builder() {
+        return Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private static PetResponse pet(Long id, Long version) {
+        Instant modified = Instant.parse("2025-05-14T14:48:39.635350Z").plusSeconds(version);
+        return new PetResponse(id, "lilli", CAT, 3, "Mike", modified, modified, version);
+    }
+}
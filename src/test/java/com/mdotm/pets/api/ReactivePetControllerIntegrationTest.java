@@ -0,0 +1,239 @@
+package com.mdotm.pets.api;
+
+import com.jayway.jsonpath.JsonPath;
+import com.mdotm.pets.dao.PetRepository;
+import com.mdotm.pets.dao.ReactivePetRepository;
+import com.mdotm.pets.model.PetDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.mdotm.pets.model.Species.CAT;
+import static com.mdotm.pets.model.Species.DOG;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("reactive")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ReactivePetControllerIntegrationTest {
+
+    private final String API_PATH = "/api/v1/pets";
+    private Long PET_ID;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private ReactivePetRepository reactivePetRepository;
+
+    @BeforeEach
+    public void setUp() {
+        Instant now = Instant.now();
+        PET_ID = petRepository.save(new PetDocument(null, "lilli", CAT, 3, "Mike", now, now, null)).getId();
+        petRepository.save(new PetDocument(null, "tommy", DOG, 0, "Alessia", now, now, null));
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        petRepository.deleteAll();
+    }
+
+    @Test
+    public void createPet_OK() {
+        String requestBody = """
+        {
+            "name": "tommy",
+            "species": "DOG",
+            "age": 10,
+            "owner_name": "Alberto"
+        }
+        """;
+
+        webTestClient.post().uri(API_PATH)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("tommy")
+                .jsonPath("$.species").isEqualTo("DOG")
+                .jsonPath("$.age").isEqualTo(10)
+                .jsonPath("$.owner_name").isEqualTo("Alberto");
+
+        // the pet is visible to the blocking stack as well
+        assertThat(petRepository.count()).isEqualTo(3);
+        assertThat(petRepository.findAll()).extracting(PetDocument::getName).contains("tommy");
+    }
+
+    @Test
+    public void ids_Taken_By_Both_Stacks_Never_Collide() {
+        Set<Long> ids = new HashSet<>();
+        // several blocks on each side, reserved alternately from the same sequence row
+        for (int i = 0; i < 3 * PetDocument.ID_BLOCK_SIZE; i++) {
+            Instant now = Instant.now();
+            ids.add(reactivePetRepository.insert("reactive-" + i, DOG, 1, "Mike", now).block().id());
+            ids.add(petRepository.save(new PetDocument(null, "jpa-" + i, DOG, 1, "Mike", now, now, null)).getId());
+        }
+
+        assertThat(ids).hasSize(6 * PetDocument.ID_BLOCK_SIZE);
+    }
+
+    @Test
+    public void createPet_Already_Exist_KO() {
+        String requestBody = """
+        {
+            "name": "lilli",
+            "species": "CAT",
+            "age": 3,
+            "owner_name": "Mike"
+        }
+        """;
+
+        webTestClient.post().uri(API_PATH)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody)
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody()
+                .jsonPath("$.error_code").isEqualTo("ALREADY_EXIST_ERROR")
+                .jsonPath("$.error_message").isEqualTo("Pet: lilli with owner: Mike for species: CAT already exists");
+    }
+
+    @Test
+    public void createPet_Empty_Name_KO() {
+        String requestBody = """
+        {
+            "name": "",
+            "species": "DOG",
+            "age": 10,
+            "owner_name": "Alberto"
+        }
+        """;
+
+        webTestClient.post().uri(API_PATH)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error_code").isEqualTo("VALIDATION_ERROR")
+                .jsonPath("$.error_message").isEqualTo("name length too short");
+    }
+
+    @Test
+    public void getPet_OK_And_Not_Modified() {
+        var eTag = webTestClient.get().uri(API_PATH + "/" + PET_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.LAST_MODIFIED)
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(PET_ID)
+                .jsonPath("$.name").isEqualTo("lilli")
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+
+        webTestClient.get().uri(API_PATH + "/" + PET_ID)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, eTag)
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    public void getPet_Not_Found_KO() {
+        webTestClient.get().uri(API_PATH + "/0")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.error_code").isEqualTo("NOT_FOUND_ERROR")
+                .jsonPath("$.error_message").isEqualTo("Pet with id: 0 not found");
+    }
+
+    @Test
+    public void getAllPets_And_Scroll_OK() {
+        webTestClient.get().uri(API_PATH + "?page=0&size=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.ETAG, eTag -> assertThat(eTag).startsWith("W/"))
+                .expectHeader().exists(HttpHeaders.LAST_MODIFIED)
+                .expectBody()
+                .jsonPath("$.content.length()").isEqualTo(1)
+                .jsonPath("$.content[0].name").isEqualTo("lilli")
+                .jsonPath("$.totalElements").isEqualTo(2);
+
+        var next = webTestClient.get().uri(API_PATH + "/scroll?size=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.LAST_MODIFIED)
+                .expectBody()
+                .jsonPath("$.content[0].name").isEqualTo("lilli")
+                .jsonPath("$.next").isNotEmpty()
+                .returnResult()
+                .getResponseBody();
+        var cursor = JsonPath.<String>read(new String(next), "$.next");
+
+        webTestClient.get().uri(API_PATH + "/scroll?size=1&cursor=" + cursor)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content[0].name").isEqualTo("tommy")
+                .jsonPath("$.next").doesNotExist();
+    }
+
+    @Test
+    public void update_If_Match_OK_And_Precondition_Failed_KO() {
+        String requestBody = """
+        {
+            "name": "lilli",
+            "species": "CAT",
+            "age": 4,
+            "owner_name": "Mike"
+        }
+        """;
+        var eTag = PetETags.forPet(PET_ID, 0, MediaType.APPLICATION_JSON);
+
+        webTestClient.put().uri(API_PATH + "/" + PET_ID)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, PetETags.forPet(PET_ID, 1, MediaType.APPLICATION_JSON))
+                .expectBody()
+                .jsonPath("$.age").isEqualTo(4);
+
+        webTestClient.put().uri(API_PATH + "/" + PET_ID)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody)
+                .exchange()
+                .expectStatus().isEqualTo(412)
+                .expectBody()
+                .jsonPath("$.error_code").isEqualTo("PRECONDITION_FAILED_ERROR");
+    }
+
+    @Test
+    public void delete_OK() {
+        webTestClient.delete().uri(API_PATH + "/" + PET_ID)
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.delete().uri(API_PATH + "/" + PET_ID)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
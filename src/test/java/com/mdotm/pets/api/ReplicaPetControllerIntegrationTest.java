@@ -0,0 +1,118 @@
+package com.mdotm.pets.api;
+
+import com.mdotm.pets.config.ReplicaRoutingDataSource;
+import com.mdotm.pets.dao.PetStore;
+import com.mdotm.pets.model.PetDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static com.mdotm.pets.model.Species.CAT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs requests through the API with a replica configured. The replica is a separate database that never catches up:
+ * it keeps the pet as it was first created, so anything read from it after a write is stale.
+ */
+@SpringBootTest(properties = {
+        "pets.datasource.replica.url=jdbc:h2:mem:replicadb;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "pets.datasource.replica.username=sa",
+        "pets.datasource.replica.password="})
+@AutoConfigureMockMvc
+public class ReplicaPetControllerIntegrationTest {
+
+    private final String API_PATH = "/api/v1/pets";
+    private Long PET_ID;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PetStore petStore;
+
+    @Autowired
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replica;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private JdbcTemplate replicaJdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        replicaJdbcTemplate = new JdbcTemplate(replica);
+        replicaJdbcTemplate.execute("CREATE TABLE IF NOT EXISTS pet (id BIGINT PRIMARY KEY, name VARCHAR(255), "
+                + "species TINYINT, age INT, owner_name VARCHAR(255), created_at TIMESTAMP(6), "
+                + "last_modified TIMESTAMP(6), version BIGINT NOT NULL DEFAULT 0)");
+
+        Instant now = Instant.now();
+        PET_ID = petStore.saveAndFlush(new PetDocument(null, "lilli", CAT, 3, "Mike", now, now, null)).getId();
+        replicaJdbcTemplate.update("INSERT INTO pet (id, name, species, age, owner_name, created_at, last_modified, version) "
+                + "VALUES (?, 'lilli', ?, 3, 'Mike', ?, ?, 0)", PET_ID, CAT.ordinal(), Timestamp.from(now), Timestamp.from(now));
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        replicaJdbcTemplate.execute("DELETE FROM pet");
+        // outside a read-only transaction, so on the primary
+        jdbcTemplate.execute("DELETE FROM pet");
+    }
+
+    @Test
+    public void getPet_After_Update_Reads_The_Primary() throws Exception {
+        assertThat(routingDataSource.isReplicaAvailable()).isTrue();
+
+        mockMvc.perform(put(API_PATH + "/" + PET_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        {"name": "tom", "species": "CAT", "age": 3, "owner_name": "Mike"}
+                        """))
+                .andExpect(status().isOk());
+
+        // another client, without the read-your-writes cookie
+        mockMvc.perform(get(API_PATH))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("lilli"));
+        mockMvc.perform(get(API_PATH + "/" + PET_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("tom"));
+        mockMvc.perform(get(API_PATH).param("ids", PET_ID.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("tom"));
+    }
+
+    @Test
+    public void delete_Then_Get_Is_Not_Found() throws Exception {
+        mockMvc.perform(delete(API_PATH + "/" + PET_ID))
+                .andExpect(status().isNoContent());
+
+        // another client, without the read-your-writes cookie; the replica still has the pet
+        mockMvc.perform(get(API_PATH + "/" + PET_ID))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get(API_PATH).param("ids", PET_ID.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.missing_ids[0]").value(PET_ID.intValue()));
+        mockMvc.perform(get(API_PATH + "/" + PET_ID))
+                .andExpect(status().isNotFound());
+    }
+}
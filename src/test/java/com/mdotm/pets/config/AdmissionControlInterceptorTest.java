@@ -0,0 +1,189 @@
+package com.mdotm.pets.config;
+
+import com.mdotm.pets.exception.PetExceptionHandler;
+import com.mdotm.pets.exception.PetOverloadedException;
+import com.mdotm.pets.model.ErrorCode;
+import com.mdotm.pets.model.ErrorResponseBody;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AdmissionControlInterceptorTest {
+
+    private static final String GET_PET = "GET /api/v1/pets/{id}";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void limit_Grows_While_Used_And_Fast() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 2, 100, 2.0, 0.9);
+
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < limit.getLimit(); i++) {
+                assertThat(limit.tryAcquire()).isTrue();
+            }
+            assertThat(limit.tryAcquire()).isFalse();
+            while (limit.getInFlight() > 0) {
+                limit.release(GET_PET, TimeUnit.MILLISECONDS.toNanos(1), false);
+            }
+        }
+
+        assertThat(limit.getLimit()).isGreaterThan(10);
+    }
+
+    @Test
+    public void limit_Stays_Up_Under_A_Steady_Mixed_Load() {
+        AdaptiveLimit limit = new AdaptiveLimit(20, 4, 200, 2.0, 0.9);
+        Random random = new Random(42);
+
+        // cached reads in microseconds, pages, searches and writes in milliseconds, in shifting proportions
+        int lowest = Integer.MAX_VALUE;
+        for (int phase = 0; phase < 10; phase++) {
+            double cachedShare = phase % 2 == 0 ? 0.9 : 0.2;
+            lowest = Math.min(lowest, mixedLoad(limit, random, 2_000, cachedShare, 1));
+        }
+
+        assertThat(lowest).isGreaterThanOrEqualTo(20);
+    }
+
+    @Test
+    public void limit_Shrinks_When_Latency_Grows() {
+        AdaptiveLimit limit = new AdaptiveLimit(20, 2, 100, 2.0, 0.9);
+        Random random = new Random(42);
+        mixedLoad(limit, random, 2_000, 0.5, 1);
+        int before = limit.getLimit();
+
+        mixedLoad(limit, random, 200, 0.5, 5);
+
+        assertThat(limit.getLimit()).isLessThan(before);
+    }
+
+    @Test
+    public void limit_Falls_To_Minimum_On_Failures() {
+        AdaptiveLimit limit = new AdaptiveLimit(20, 4, 100, 2.0, 0.9);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (limit.getLimit() > 4 && System.nanoTime() < deadline) {
+            limit.tryAcquire();
+            limit.release(GET_PET, TimeUnit.MICROSECONDS.toNanos(10), true);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    public void excess_Reads_Are_Rejected_Until_A_Slot_Is_Released() {
+        AdmissionControlInterceptor interceptor = interceptor(4);
+        List<MockHttpServletRequest> admitted = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            MockHttpServletRequest request = request("GET", "/api/v1/pets/{id}");
+            assertThat(interceptor.preHandle(request, new MockHttpServletResponse(), new Object())).isTrue();
+            admitted.add(request);
+        }
+
+        assertThatThrownBy(() -> interceptor.preHandle(request("GET", "/api/v1/pets/{id}"), new MockHttpServletResponse(), new Object()))
+                .isInstanceOf(PetOverloadedException.class);
+        // writes have a limit of their own
+        assertThat(interceptor.preHandle(request("POST", "/api/v1/pets"), new MockHttpServletResponse(), new Object())).isTrue();
+
+        interceptor.afterCompletion(admitted.get(0), new MockHttpServletResponse(), new Object(), null);
+        assertThat(interceptor.preHandle(request("GET", "/api/v1/pets/{id}"), new MockHttpServletResponse(), new Object())).isTrue();
+        assertThat(meterRegistry.get(AdmissionControlInterceptor.REJECTED_COUNTER).tag("class", "read").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void bulk_Writes_Are_Shed_While_Reads_Are_Busy() {
+        AdmissionControlInterceptor interceptor = interceptor(4);
+        MockHttpServletRequest read = request("GET", "/api/v1/pets");
+        interceptor.preHandle(read, new MockHttpServletResponse(), new Object());
+        interceptor.preHandle(request("GET", "/api/v1/pets"), new MockHttpServletResponse(), new Object());
+
+        assertThatThrownBy(() -> interceptor.preHandle(request("POST", "/api/v1/pets/batch"), new MockHttpServletResponse(), new Object()))
+                .isInstanceOf(PetOverloadedException.class);
+        assertThat(interceptor.preHandle(request("POST", "/api/v1/pets"), new MockHttpServletResponse(), new Object())).isTrue();
+
+        interceptor.afterCompletion(read, new MockHttpServletResponse(), new Object(), null);
+        assertThat(interceptor.preHandle(request("POST", "/api/v1/pets/batch"), new MockHttpServletResponse(), new Object())).isTrue();
+    }
+
+    @Test
+    public void bulk_Writes_Do_Not_Take_Write_Slots() {
+        AdmissionControlInterceptor interceptor = interceptor(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(interceptor.preHandle(request("POST", "/api/v1/pets/import"), new MockHttpServletResponse(), new Object())).isTrue();
+        }
+
+        assertThatThrownBy(() -> interceptor.preHandle(request("POST", "/api/v1/pets/batch"), new MockHttpServletResponse(), new Object()))
+                .isInstanceOf(PetOverloadedException.class);
+        assertThat(interceptor.preHandle(request("POST", "/api/v1/pets"), new MockHttpServletResponse(), new Object())).isTrue();
+    }
+
+    @Test
+    public void overloaded_Is_Answered_With_503_And_Retry_After() {
+        var response = new PetExceptionHandler(meterRegistry)
+                .handleOverloadedException(new PetOverloadedException("Too many concurrent requests, retry later", Duration.ofMillis(1500)));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThat(((ErrorResponseBody) response.getBody()).getErrorCode()).isEqualTo(ErrorCode.OVERLOADED_ERROR);
+    }
+
+    private AdmissionControlInterceptor interceptor(int limit) {
+        return new AdmissionControlInterceptor(new AdaptiveLimit(limit, limit, limit, 2.0, 0.9),
+                new AdaptiveLimit(limit, limit, limit, 2.0, 0.9), new AdaptiveLimit(limit, limit, limit, 2.0, 0.9),
+                Duration.ofSeconds(1), meterRegistry);
+    }
+
+    /**
+     * Keeps 16 requests in flight, each replaced as soon as it completes, and reports the lowest limit seen.
+     *
+     * @param cachedShare the share of reads served from the cache
+     * @param slowdown how many times slower than usual the database is
+     */
+    private static int mixedLoad(AdaptiveLimit limit, Random random, int requests, double cachedShare, int slowdown) {
+        while (limit.getInFlight() < 16 && limit.tryAcquire()) {
+            // fills the load up
+        }
+        int lowest = limit.getLimit();
+        for (int i = 0; i < requests; i++) {
+            String route;
+            double micros;
+            double pick = random.nextDouble();
+            if (pick < cachedShare) {
+                route = GET_PET;
+                micros = random.nextDouble() < 0.05 ? 2_000 * slowdown : 50;
+            } else if (pick < cachedShare + (1 - cachedShare) / 2) {
+                route = "GET /api/v1/pets";
+                micros = 3_000 * slowdown;
+            } else {
+                route = random.nextBoolean() ? "PUT /api/v1/pets/{id}" : "GET /api/v1/pets/search";
+                micros = 6_000 * slowdown;
+            }
+            limit.release(route, (long) (micros * (0.5 + random.nextDouble()) * 1_000), false);
+            limit.tryAcquire();
+            lowest = Math.min(lowest, limit.getLimit());
+        }
+        return lowest;
+    }
+
+    private static MockHttpServletRequest request(String method, String pattern) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, pattern);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        return request;
+    }
+}
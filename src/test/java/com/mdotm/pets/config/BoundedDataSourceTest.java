@@ -0,0 +1,95 @@
+package com.mdotm.pets.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BoundedDataSourceTest {
+
+    @Test
+    public void getConnection_Never_Exceeds_Limit() throws Exception {
+        DataSource target = mock(DataSource.class);
+        when(target.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        BoundedDataSource dataSource = new BoundedDataSource(target, 4, Duration.ofSeconds(10));
+
+        int callers = 64;
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try (Connection ignored = dataSource.getConnection()) {
+                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        Thread.sleep(5);
+                        inFlight.decrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(4);
+        assertThat(dataSource.availablePermits()).isEqualTo(4);
+    }
+
+    @Test
+    public void getConnection_Times_Out_When_Saturated() throws Exception {
+        DataSource target = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(connection);
+        BoundedDataSource dataSource = new BoundedDataSource(target, 1, Duration.ofMillis(50));
+
+        Connection held = dataSource.getConnection();
+        assertThatThrownBy(dataSource::getConnection)
+                .isInstanceOf(SQLTransientConnectionException.class);
+
+        held.close();
+        held.close();
+        verify(connection, times(2)).close();
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    public void only_The_Primary_Pool_Is_Bounded() {
+        BeanPostProcessor postProcessor = DataSourceConfig.boundedDataSourcePostProcessor(4, Duration.ofSeconds(10));
+        HikariDataSource pool = new HikariDataSource();
+        HikariDataSource replica = new HikariDataSource();
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(pool);
+
+        assertThat(postProcessor.postProcessAfterInitialization(pool, "dataSource")).isInstanceOf(BoundedDataSource.class);
+        assertThat(postProcessor.postProcessAfterInitialization(pool, "primaryDataSource")).isInstanceOf(BoundedDataSource.class);
+        assertThat(postProcessor.postProcessAfterInitialization(replica, "replicaDataSource")).isSameAs(replica);
+        assertThat(postProcessor.postProcessAfterInitialization(proxy, "dataSource")).isSameAs(proxy);
+    }
+}
@@ -0,0 +1,94 @@
+package com.mdotm.pets.config;
+
+import com.mdotm.pets.dao.PetRepository;
+import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetRequest;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.service.PetService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static com.mdotm.pets.model.Species.CAT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+public class PetIdSequenceSeederIntegrationTest {
+
+    @Autowired
+    private PetIdSequenceSeeder seeder;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanup() {
+        petRepository.deleteAll();
+    }
+
+    @Test
+    public void seeding_Moves_The_Sequence_Past_Pets_Inserted_Without_It() {
+        // the last id of the block Hibernate takes next
+        long taken = jdbcTemplate.queryForObject("SELECT next_val FROM pet_id_sequence WHERE sequence_name = 'pet'", Long.class) + 1;
+        var now = Timestamp.from(Instant.now());
+        jdbcTemplate.update("INSERT INTO pet (id, name, species, age, owner_name, created_at, last_modified, version) "
+                + "VALUES (?, 'legacy', ?, 3, 'Mike', ?, ?, 0)", taken, CAT.ordinal(), now, now);
+
+        seeder.afterPropertiesSet();
+        seeder.afterPropertiesSet();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT next_val FROM pet_id_sequence WHERE sequence_name = 'pet'", Long.class))
+                .isEqualTo(taken + PetDocument.ID_BLOCK_SIZE - 1);
+        // enough creates to use up the block Hibernate holds and the next one
+        for (int i = 0; i < 100; i++) {
+            PetResponse created = petService.createPet(new PetRequest("pet" + i, CAT, 1, "Mike"));
+            assertThat(created.id()).isNotEqualTo(taken);
+        }
+    }
+
+    @Test
+    public void seeding_Retries_After_A_Deadlock() {
+        JdbcTemplate deadlocking = spy(jdbcTemplate);
+        doThrow(new CannotAcquireLockException("Deadlock found when trying to get lock"))
+                .doCallRealMethod()
+                .when(deadlocking).queryForList(startsWith("SELECT next_val"), eq(Long.class));
+
+        new PetIdSequenceSeeder(deadlocking, transactionManager).afterPropertiesSet();
+
+        verify(deadlocking, times(2)).queryForList(startsWith("SELECT next_val"), eq(Long.class));
+    }
+
+    @Test
+    public void seeding_Gives_Up_After_Repeated_Deadlocks() {
+        JdbcTemplate deadlocking = spy(jdbcTemplate);
+        doThrow(new CannotAcquireLockException("Deadlock found when trying to get lock"))
+                .when(deadlocking).queryForList(startsWith("SELECT next_val"), eq(Long.class));
+
+        assertThatThrownBy(() -> new PetIdSequenceSeeder(deadlocking, transactionManager).afterPropertiesSet())
+                .isInstanceOf(CannotAcquireLockException.class);
+        verify(deadlocking, times(PetIdSequenceSeeder.MAX_ATTEMPTS)).queryForList(startsWith("SELECT next_val"), eq(Long.class));
+    }
+}
@@ -0,0 +1,29 @@
+package com.mdotm.pets.config;
+
+import com.mdotm.pets.dao.PetRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"pets.warmup.enabled=true", "pets.warmup.rounds=20"})
+public class PetWarmupIntegrationTest {
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void warmup_Exercises_The_Api_And_Leaves_No_Pets() {
+        assertThat(meterRegistry.get("http.server.requests").tag("method", "POST").tag("uri", "/api/v1/pets")
+                .timer().count()).isEqualTo(20);
+        assertThat(meterRegistry.get("http.server.requests").tag("method", "DELETE").tag("uri", "/api/v1/pets/{id}")
+                .timer().count()).isEqualTo(20);
+        assertThat(petRepository.findAll()).noneMatch(pet -> pet.getOwnerName().startsWith("warmup-"));
+    }
+}
@@ -0,0 +1,137 @@
+package com.mdotm.pets.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private ReplicaRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    public void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        routingDataSource = routing(replica, null);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        new JdbcTemplate(primary).execute("drop table node");
+        new JdbcTemplate(replica).execute("drop table node");
+    }
+
+    @Test
+    public void readOnly_Transactions_Go_To_Replica() {
+        assertThat(readOnlyNode()).isEqualTo("replica");
+        assertThat(readWriteNode()).isEqualTo("primary");
+        assertThat(node()).isEqualTo("primary");
+    }
+
+    @Test
+    public void reads_After_Own_Write_Go_To_Primary() throws Exception {
+        ReadYourWritesInterceptor interceptor = new ReadYourWritesInterceptor(Duration.ofSeconds(5));
+        MockHttpServletRequest write = new MockHttpServletRequest("PUT", "/api/v1/pets/1");
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        interceptor.preHandle(write, writeResponse, new Object());
+        interceptor.afterCompletion(write, writeResponse, new Object(), null);
+
+        MockHttpServletRequest read = new MockHttpServletRequest("GET", "/api/v1/pets/1");
+        read.setCookies(writeResponse.getCookie(ReadYourWritesInterceptor.COOKIE));
+        interceptor.preHandle(read, new MockHttpServletResponse(), new Object());
+        try {
+            assertThat(readOnlyNode()).isEqualTo("primary");
+        } finally {
+            interceptor.afterCompletion(read, new MockHttpServletResponse(), new Object(), null);
+        }
+
+        MockHttpServletRequest otherClient = new MockHttpServletRequest("GET", "/api/v1/pets/1");
+        interceptor.preHandle(otherClient, new MockHttpServletResponse(), new Object());
+        try {
+            assertThat(readOnlyNode()).isEqualTo("replica");
+        } finally {
+            interceptor.afterCompletion(otherClient, new MockHttpServletResponse(), new Object(), null);
+        }
+    }
+
+    @Test
+    public void replica_Down_Falls_Back_To_Primary() throws Exception {
+        DataSource down = mock(DataSource.class);
+        when(down.getConnection()).thenThrow(new SQLException("connection refused"));
+        routingDataSource = routing(down, null);
+
+        assertThat(readOnlyNode()).isEqualTo("primary");
+        assertThat(routingDataSource.isReplicaAvailable()).isFalse();
+
+        routingDataSource.probeReplica();
+        assertThat(routingDataSource.isReplicaAvailable()).isFalse();
+    }
+
+    @Test
+    public void replica_Lagging_Falls_Back_To_Primary_Until_It_Catches_Up() {
+        new JdbcTemplate(replica).execute("create table lag (seconds bigint)");
+        new JdbcTemplate(replica).execute("insert into lag values (60)");
+        routingDataSource = routing(replica, "select seconds from lag");
+
+        routingDataSource.probeReplica();
+        assertThat(readOnlyNode()).isEqualTo("primary");
+
+        new JdbcTemplate(replica).execute("update lag set seconds = 1");
+        routingDataSource.probeReplica();
+        assertThat(readOnlyNode()).isEqualTo("replica");
+        new JdbcTemplate(replica).execute("drop table lag");
+    }
+
+    private ReplicaRoutingDataSource routing(DataSource replica, String lagQuery) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica, lagQuery, Duration.ofSeconds(10));
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return routing;
+    }
+
+    private String readOnlyNode() {
+        return readOnly.execute(status -> node());
+    }
+
+    private String readWriteNode() {
+        return readWrite.execute(status -> node());
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table node (name varchar(16))");
+        jdbcTemplate.update("insert into node values (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,174 @@
+package com.mdotm.pets.dao;
+
+import com.mdotm.pets.model.PetDocument;
+import com.mdotm.pets.model.PetFilter;
+import com.mdotm.pets.model.PetKey;
+import com.mdotm.pets.model.PetPosition;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.Species;
+import com.mdotm.pets.model.SpeciesCount;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import static com.mdotm.pets.model.Species.CAT;
+import static com.mdotm.pets.model.Species.DOG;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedPetRepositoryTest {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+    @TempDir
+    private Path directory;
+
+    private Path path;
+    private MappedPetRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        path = directory.resolve("pets.log");
+        repository = new MappedPetRepository(path, false, 0.5);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    public void save_Assigns_Ids_And_Rejects_Duplicate_Natural_Keys() {
+        var lilli = repository.saveAndFlush(pet("lilli", "Mike"));
+
+        assertThat(lilli.getId()).isEqualTo(1L);
+        assertThat(lilli.getVersion()).isZero();
+        assertThat(repository.findResponseById(1L)).contains(lilli.toPetResponse());
+        assertThat(findByNaturalKey("lilli", CAT, "Mike")).contains(lilli);
+        assertThatThrownBy(() -> repository.saveAndFlush(pet("lilli", "Mike"))).isInstanceOf(DuplicateKeyException.class);
+        assertThatThrownBy(() -> repository.saveAllAndFlush(List.of(pet("tommy", "Mike"), pet("tommy", "Mike"))))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(count()).isEqualTo(1);
+        // like the MySQL unique index, pets without an owner are not constrained
+        repository.saveAndFlush(pet("stray", null));
+        repository.saveAndFlush(pet("stray", null));
+        assertThat(count()).isEqualTo(3);
+    }
+
+    @Test
+    public void updates_Check_Version_And_Move_The_Natural_Key() {
+        var id = repository.saveAndFlush(pet("lilli", "Mike")).getId();
+        repository.saveAndFlush(pet("tommy", "Mike"));
+
+        assertThat(repository.updateByIdAndVersion(id, 1L, "lilli", DOG, 4, "Mike", NOW)).isZero();
+        assertThat(repository.updateByIdAndVersion(id, 0L, "lilli", DOG, 4, "Mike", NOW)).isEqualTo(1);
+        assertThatThrownBy(() -> repository.updateByIdAndVersion(id, 1L, "tommy", CAT, 4, "Mike", NOW))
+                .isInstanceOf(DuplicateKeyException.class);
+
+        assertThat(repository.findVersionById(id).orElseThrow().version()).isEqualTo(1L);
+        assertThat(findByNaturalKey("lilli", CAT, "Mike")).isEmpty();
+        assertThat(findByNaturalKey("lilli", DOG, "Mike")).isPresent();
+        assertThat(repository.updateByIdAndVersion(99L, 0L, "lilli", DOG, 4, "Mike", NOW)).isZero();
+    }
+
+    @Test
+    public void reopening_Recovers_Pets_And_Discards_A_Torn_Record() throws IOException {
+        var lilli = repository.saveAndFlush(pet("lilli", "Mike"));
+        var tommy = repository.saveAndFlush(pet("tommy", "Alessia"));
+        repository.updateByIdAndVersion(tommy.getId(), 0L, "tommy", DOG, 1, "Alessia", NOW);
+        repository.delete(repository.findById(lilli.getId()).orElseThrow());
+        repository.saveAndFlush(pet("kitty", "Mike"));
+        repository.close();
+
+        // corrupt the last record, as if the process had died while writing it
+        try (var file = new RandomAccessFile(path.toFile(), "rw")) {
+            var last = lastRecordOffset();
+            file.seek(last + 20);
+            file.write(0x7f);
+        }
+        repository = new MappedPetRepository(path, false, 0.5);
+
+        assertThat(names()).containsExactly("tommy");
+        assertThat(repository.findResponseById(tommy.getId()).map(PetResponse::version)).contains(1L);
+        assertThat(repository.saveAndFlush(pet("kitty", "Mike")).getId()).isEqualTo(4L);
+        repository.close();
+
+        repository = new MappedPetRepository(path, false, 0.5);
+        assertThat(names()).containsExactly("tommy", "kitty");
+    }
+
+    @Test
+    public void compaction_Drops_Garbage_And_Keeps_Live_Pets() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            repository.saveAndFlush(pet("pet" + i, "Mike"));
+        }
+        for (long id = 1; id <= 100; id++) {
+            repository.updateByIdAndVersion(id, 0L, "pet" + id, DOG, 2, "Mike", NOW);
+            if (id % 2 == 0) {
+                repository.delete(repository.findById(id).orElseThrow());
+            }
+        }
+        var sizeBefore = lastRecordOffset();
+
+        repository.compact();
+
+        assertThat(lastRecordOffset()).isLessThan(sizeBefore / 3);
+        assertThat(count()).isEqualTo(50);
+        assertThat(repository.search(new PetFilter(DOG, "Mike", null, null, null, null, null, null),
+                new PetPosition(PetFilter.Order.ID, null, 90L), Limit.of(10)))
+                .extracting(PetResponse::id).containsExactly(91L, 93L, 95L, 97L, 99L);
+        repository.saveAndFlush(pet("pet101", "Mike"));
+        repository.close();
+
+        repository = new MappedPetRepository(path, false, 0.5);
+        assertThat(count()).isEqualTo(51);
+        assertThat(findByNaturalKey("pet99", DOG, "Mike")).isPresent();
+        assertThat(repository.findById(100L)).isEmpty();
+    }
+
+    private long count() {
+        return repository.countBySpecies().stream().mapToLong(SpeciesCount::count).sum();
+    }
+
+    private List<String> names() {
+        try (var pets = repository.streamAll()) {
+            return pets.map(PetResponse::name).toList();
+        }
+    }
+
+    private Optional<PetDocument> findByNaturalKey(String name, Species species, String ownerName) {
+        return repository.findByNaturalKeys(List.of(new PetKey(name, species, ownerName))).stream().findFirst();
+    }
+
+    private static PetDocument pet(String name, String ownerName) {
+        return new PetDocument(null, name, CAT, 3, ownerName, NOW, NOW, null);
+    }
+
+    /**
+     * Walks the record lengths of the file, after its 16 byte header, up to the end of the log.
+     */
+    private int lastRecordOffset() throws IOException {
+        var bytes = Files.readAllBytes(path);
+        var buffer = ByteBuffer.wrap(bytes);
+        int position = 16;
+        int last = position;
+        while (position + 4 <= bytes.length && buffer.getInt(position) > 0) {
+            last = position;
+            position += 8 + buffer.getInt(position);
+        }
+        return last;
+    }
+}
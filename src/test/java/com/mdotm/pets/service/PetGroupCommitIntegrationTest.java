@@ -0,0 +1,38 @@
+package com.mdotm.pets.service;
+
+import com.mdotm.pets.dao.PetRepository;
+import com.mdotm.pets.model.PetRequest;
+import com.mdotm.pets.model.PetResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static com.mdotm.pets.model.Species.CAT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Creates pets through the service with group commit enabled, so the writer must have been started by the container.
+ */
+@SpringBootTest(properties = "pets.group-commit.enabled=true")
+public class PetGroupCommitIntegrationTest {
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @AfterEach
+    public void cleanup() {
+        petRepository.deleteAll();
+    }
+
+    @Test
+    public void createPet_Goes_Through_The_Writer() {
+        PetResponse created = petService.createPet(new PetRequest("lilli", CAT, 3, "Mike"));
+
+        assertThat(created.id()).isNotNull();
+        assertThat(petService.getPet(created.id()).name()).isEqualTo("lilli");
+    }
+}
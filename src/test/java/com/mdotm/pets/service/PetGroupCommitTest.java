@@ -0,0 +1,174 @@
+package com.mdotm.pets.service;
+
+import com.mdotm.pets.exception.GenericException;
+import com.mdotm.pets.exception.PetAlreadyExistException;
+import com.mdotm.pets.model.ErrorCode;
+import com.mdotm.pets.model.ErrorResponseBody;
+import com.mdotm.pets.model.PetBatchResult;
+import com.mdotm.pets.model.PetRequest;
+import com.mdotm.pets.model.PetResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static com.mdotm.pets.model.Species.DOG;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PetGroupCommitTest {
+
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private final Set<String> stored = new HashSet<>();
+    private final AtomicLong ids = new AtomicLong();
+    private PetGroupCommit groupCommit;
+
+    @AfterEach
+    public void cleanUp() throws Exception {
+        groupCommit.stop();
+    }
+
+    @Test
+    public void concurrent_Creates_Share_Batches() throws Exception {
+        groupCommit = new PetGroupCommit(50, Duration.ofMillis(20), 1000, Duration.ofSeconds(5));
+        groupCommit.start(this::insert);
+
+        int callers = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<PetResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                PetRequest pet = new PetRequest("pet-" + i, DOG, 1, "owner");
+                futures.add(executor.submit(() -> groupCommit.submit(pet)));
+            }
+            Set<Long> createdIds = new HashSet<>();
+            for (int i = 0; i < callers; i++) {
+                PetResponse created = futures.get(i).get();
+                assertThat(created.name()).isEqualTo("pet-" + i);
+                createdIds.add(created.id());
+            }
+            assertThat(createdIds).hasSize(callers);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(callers);
+        assertThat(batchSizes.size()).isLessThan(callers);
+        assertThat(batchSizes).allMatch(size -> size <= 50);
+    }
+
+    @Test
+    public void duplicate_Create_Gets_Its_Own_Conflict() {
+        groupCommit = new PetGroupCommit(10, Duration.ofMillis(1), 100, Duration.ofSeconds(5));
+        groupCommit.start(this::insert);
+
+        groupCommit.submit(new PetRequest("lilli", DOG, 1, "Mike"));
+
+        assertThatThrownBy(() -> groupCommit.submit(new PetRequest("lilli", DOG, 1, "Mike")))
+                .isInstanceOf(PetAlreadyExistException.class);
+    }
+
+    @Test
+    public void batch_Rolled_Back_By_Concurrent_Insert_Is_Retried_One_By_One() throws Exception {
+        groupCommit = new PetGroupCommit(10, Duration.ofMillis(50), 100, Duration.ofSeconds(5));
+        Function<List<PetRequest>, List<PetBatchResult>> racingWriter = pets -> {
+            if (pets.size() > 1) {
+                throw new PetAlreadyExistException("created concurrently");
+            }
+            return insert(pets);
+        };
+        groupCommit.start(racingWriter);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<PetResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                PetRequest pet = new PetRequest("pet-" + i, DOG, 1, "owner");
+                futures.add(executor.submit(() -> groupCommit.submit(pet)));
+            }
+            for (Future<PetResponse> future : futures) {
+                assertThat(future.get().id()).isNotNull();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void creates_Racing_Shutdown_Never_Hang() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 50; round++) {
+                groupCommit = new PetGroupCommit(10, Duration.ofMillis(1), 100, Duration.ofSeconds(5));
+                groupCommit.start(this::insert);
+                List<Future<PetResponse>> futures = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    PetRequest pet = new PetRequest("pet-" + round + "-" + i, DOG, 1, "owner");
+                    futures.add(executor.submit(() -> groupCommit.submit(pet)));
+                }
+                groupCommit.stop();
+                for (Future<PetResponse> future : futures) {
+                    try {
+                        assertThat(future.get(2, TimeUnit.SECONDS).id()).isNotNull();
+                    } catch (ExecutionException e) {
+                        assertThat(e.getCause()).isInstanceOf(GenericException.class);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void create_Gives_Up_When_The_Batch_Does_Not_Commit_In_Time() {
+        CountDownLatch release = new CountDownLatch(1);
+        groupCommit = new PetGroupCommit(10, Duration.ofMillis(1), 100, Duration.ofMillis(200));
+        groupCommit.start(pets -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return insert(pets);
+        });
+
+        try {
+            assertThatThrownBy(() -> groupCommit.submit(new PetRequest("lilli", DOG, 1, "Mike")))
+                    .isInstanceOf(GenericException.class)
+                    .hasMessage("Timed out saving pet");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private synchronized List<PetBatchResult> insert(List<PetRequest> pets) {
+        batchSizes.add(pets.size());
+        List<PetBatchResult> results = new ArrayList<>();
+        for (int i = 0; i < pets.size(); i++) {
+            PetRequest pet = pets.get(i);
+            if (!stored.add(pet.name() + pet.species() + pet.ownerName())) {
+                results.add(new PetBatchResult(i, 409, null, new ErrorResponseBody(ErrorCode.ALREADY_EXIST_ERROR, "exists")));
+                continue;
+            }
+            Instant now = Instant.now();
+            results.add(new PetBatchResult(i, 200, new PetResponse(ids.incrementAndGet(), pet.name(), pet.species(),
+                    pet.age(), pet.ownerName(), now, now, 0L), null));
+        }
+        return results;
+    }
+}
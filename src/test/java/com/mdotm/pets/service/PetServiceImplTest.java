@@ -1,12 +1,17 @@
 package com.mdotm.pets.service;
 
-import com.mdotm.pets.dao.PetRepository;
+import com.mdotm.pets.dao.PetStore;
 import com.mdotm.pets.exception.*;
 import com.mdotm.pets.model.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.data.domain.*;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.Instant;
 import java.util.*;
@@ -19,7 +24,16 @@ import static org.mockito.Mockito.*;
 public class PetServiceImplTest {
 
     @Mock
-    private PetRepository petRepository;
+    private PetStore petStore;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private PetStats petStats;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private PetServiceImpl petService;
@@ -32,14 +46,12 @@ public class PetServiceImplTest {
         MockitoAnnotations.openMocks(this);
 
         petRequest = new PetRequest("Tommy", MONKEY, 3, "Khan");
-        petDocument = new PetDocument(1L, "Tommy", MONKEY, 3, "Khan", Instant.now(), Instant.now());
+        petDocument = new PetDocument(1L, "Tommy", MONKEY, 3, "Khan", Instant.now(), Instant.now(), 0L);
     }
 
     @Test
     public void createPet_OK() {
-        when(petRepository.findByNameAndSpeciesAndOwnerName(any(), any(), any()))
-                .thenReturn(Optional.empty());
-        when(petRepository.save(any())).thenReturn(petDocument);
+        when(petStore.saveAndFlush(any())).thenReturn(petDocument);
 
         PetResponse response = petService.createPet(petRequest);
 
@@ -47,21 +59,46 @@ public class PetServiceImplTest {
         assertThat(response.species()).isEqualTo(MONKEY);
         assertThat(response.age()).isEqualTo(3);
         assertThat(response.ownerName()).isEqualTo("Khan");
-        verify(petRepository).save(any());
+        verify(petStore).saveAndFlush(any());
+        verify(petStore, never()).findByNaturalKeys(any());
+        verify(petStats).created(response);
     }
 
     @Test
     public void createPet_AlreadyExist_KO() {
-        when(petRepository.findByNameAndSpeciesAndOwnerName(any(), any(), any()))
-                .thenReturn(Optional.of(petDocument));
+        var violation = new org.hibernate.exception.ConstraintViolationException("duplicate", null, "insert",
+                org.hibernate.exception.ConstraintViolationException.ConstraintKind.UNIQUE, PetDocument.NATURAL_KEY_CONSTRAINT);
+        when(petStore.saveAndFlush(any()))
+                .thenThrow(new DataIntegrityViolationException("duplicate", violation));
+
+        assertThatThrownBy(() -> petService.createPet(petRequest))
+                .isInstanceOf(PetAlreadyExistException.class)
+                .hasMessage("Pet: Tommy with owner: Khan for species: MONKEY already exists");
+    }
+
+    @Test
+    public void createPet_Primary_Key_Collision_Is_Not_A_Conflict() {
+        var violation = new org.hibernate.exception.ConstraintViolationException("duplicate", null, "insert",
+                org.hibernate.exception.ConstraintViolationException.ConstraintKind.UNIQUE, "PRIMARY");
+        when(petStore.saveAndFlush(any()))
+                .thenThrow(new DataIntegrityViolationException("duplicate", violation));
+
+        assertThatThrownBy(() -> petService.createPet(petRequest))
+                .isInstanceOf(GenericException.class);
+    }
+
+    @Test
+    public void createPet_Other_Integrity_Error_KO() {
+        when(petStore.saveAndFlush(any()))
+                .thenThrow(new DataIntegrityViolationException("column cannot be null"));
 
         assertThatThrownBy(() -> petService.createPet(petRequest))
-                .isInstanceOf(PetAlreadyExistException.class);
+                .isInstanceOf(GenericException.class);
     }
 
     @Test
     public void getPet_OK() {
-        when(petRepository.findById(1L)).thenReturn(Optional.of(petDocument));
+        when(petStore.findResponseById(1L)).thenReturn(Optional.of(petDocument.toPetResponse()));
 
         PetResponse response = petService.getPet(1L);
 
@@ -73,7 +110,7 @@ public class PetServiceImplTest {
 
     @Test
     public void getPet_NOT_Found_KO() {
-        when(petRepository.findById(1L)).thenReturn(Optional.empty());
+        when(petStore.findResponseById(1L)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> petService.getPet(1L))
                 .isInstanceOf(PetNotFoundException.class);
@@ -81,8 +118,8 @@ public class PetServiceImplTest {
 
     @Test
     public void getAllPets_OK() {
-        Page<PetDocument> page = new PageImpl<>(List.of(petDocument));
-        when(petRepository.findAll(any(Pageable.class))).thenReturn(page);
+        Page<PetResponse> page = new PageImpl<>(List.of(petDocument.toPetResponse()));
+        when(petStore.findAllResponses(any(Pageable.class))).thenReturn(page);
 
         Page<PetResponse> result = petService.getAllPets(PageRequest.of(0, 10));
 
@@ -95,33 +132,277 @@ public class PetServiceImplTest {
 
     @Test
     public void updatePet_OK() {
-        when(petRepository.findById(1L)).thenReturn(Optional.of(petDocument));
-        when(petRepository.save(any())).thenReturn(petDocument);
+        when(petStore.findResponseById(1L)).thenReturn(Optional.of(petDocument.toPetResponse()));
+        when(petStore.updateByIdAndVersion(eq(1L), eq(0L), eq("Rabi"), eq(RABBIT), eq(4), eq("Jack"), any())).thenReturn(1);
 
         PetRequest updated = new PetRequest("Rabi", RABBIT, 4, "Jack");
-        PetResponse response = petService.updatePet(1L, updated);
+        PetResponse response = petService.updatePet(1L, updated, null);
 
         assertThat(response.name()).isEqualTo("Rabi");
         assertThat(response.species()).isEqualTo(RABBIT);
         assertThat(response.age()).isEqualTo(4);
         assertThat(response.ownerName()).isEqualTo("Jack");
-        verify(petRepository).save(any());
+        assertThat(response.createdAt()).isEqualTo(petDocument.getCreateAt());
+        assertThat(response.version()).isEqualTo(1L);
+        verify(petStore).findResponseById(1L);
+        verify(petStats).changed(petDocument.toPetResponse(), response);
+    }
+
+    @Test
+    public void updatePet_Cached_Pet_Is_Not_Read() {
+        ConcurrentMapCache cache = new ConcurrentMapCache(PetServiceImpl.PETS_CACHE);
+        cache.put(1L, petDocument.toPetResponse());
+        when(cacheManager.getCache(PetServiceImpl.PETS_CACHE)).thenReturn(cache);
+        when(petStore.updateByIdAndVersion(eq(1L), eq(0L), eq("Rabi"), eq(RABBIT), eq(4), eq("Jack"), any())).thenReturn(1);
+
+        PetResponse response = petService.updatePet(1L, new PetRequest("Rabi", RABBIT, 4, "Jack"), 0L);
+
+        assertThat(response.version()).isEqualTo(1L);
+        verify(petStore, never()).findResponseById(any());
+    }
+
+    @Test
+    public void updatePet_Stale_Cached_Pet_Is_Read_Again() {
+        ConcurrentMapCache cache = new ConcurrentMapCache(PetServiceImpl.PETS_CACHE);
+        cache.put(1L, petDocument.toPetResponse());
+        when(cacheManager.getCache(PetServiceImpl.PETS_CACHE)).thenReturn(cache);
+        PetDocument current = new PetDocument(1L, "Tommy", Species.DOG, 3, "Khan", Instant.now(), Instant.now(), 4L);
+        when(petStore.updateByIdAndVersion(eq(1L), eq(0L), any(), any(), any(), any(), any())).thenReturn(0);
+        when(petStore.findResponseById(1L)).thenReturn(Optional.of(current.toPetResponse()));
+        when(petStore.updateByIdAndVersion(eq(1L), eq(4L), any(), any(), any(), any(), any())).thenReturn(1);
+
+        PetResponse response = petService.updatePet(1L, new PetRequest("Rabi", RABBIT, 4, "Jack"), null);
+
+        assertThat(response.version()).isEqualTo(5L);
+        verify(petStats).changed(current.toPetResponse(), response);
+        // the pet is read again in a transaction of its own, not from the snapshot of the failed attempt
+        verify(transactionManager, times(2)).getTransaction(any());
+    }
+
+    @Test
+    public void updatePet_Version_Stale_KO() {
+        when(petStore.findResponseById(1L)).thenReturn(Optional.of(petDocument.toPetResponse()));
+
+        assertThatThrownBy(() -> petService.updatePet(1L, new PetRequest("Rabi", RABBIT, 4, "Jack"), 3L))
+                .isInstanceOf(PetPreconditionFailedException.class);
+        verify(petStore, never()).updateByIdAndVersion(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void updatePet_NOT_Found_KO() {
+        when(petStore.findResponseById(1L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> petService.updatePet(1L, new PetRequest("Rabi", RABBIT, 4, "Jack"), null))
+                .isInstanceOf(PetNotFoundException.class);
+    }
+
+    @Test
+    public void patchPet_OK() {
+        PetPatch patch = new PetPatch(null, null, 7, true, null);
+        when(petStore.findResponseById(1L)).thenReturn(Optional.of(petDocument.toPetResponse()));
+        when(petStore.patchById(eq(1L), eq(0L), eq(patch), any())).thenReturn(1);
+
+        PetResponse response = petService.patchPet(1L, patch, null);
+
+        assertThat(response.name()).isEqualTo("Tommy");
+        assertThat(response.age()).isEqualTo(7);
+        assertThat(response.ownerName()).isEqualTo("Khan");
+        assertThat(response.version()).isEqualTo(1L);
+        verify(petStore).findResponseById(1L);
+    }
+
+    @Test
+    public void patchPet_Version_Stale_KO() {
+        PetPatch patch = new PetPatch("Rabi", null, null, false, null);
+        when(petStore.findResponseById(1L)).thenReturn(Optional.of(petDocument.toPetResponse()));
+
+        assertThatThrownBy(() -> petService.patchPet(1L, patch, 3L))
+                .isInstanceOf(PetPreconditionFailedException.class);
+        verify(petStore, never()).patchById(any(), any(), any(), any());
+    }
+
+    @Test
+    public void searchPets_OK() {
+        PetFilter filter = new PetFilter(MONKEY, "Jack", 1, 5, null, null, null, null);
+        PetDocument second = new PetDocument(2L, "Rabi", MONKEY, 4, "Jack", Instant.now(), Instant.now(), 0L);
+        when(petStore.search(filter, null, Limit.of(2)))
+                .thenReturn(List.of(petDocument.toPetResponse(), second.toPetResponse()));
+
+        PetSliceResponse slice = petService.searchPets(filter, null, 1);
+
+        assertThat(slice.content()).hasSize(1);
+        assertThat(slice.next()).isEqualTo(PetCursor.encode(1L));
+    }
+
+    @Test
+    public void searchPets_On_Age_Range_Pages_By_Age() {
+        PetFilter filter = new PetFilter(MONKEY, null, 1, 5, null, null, null, null);
+        PetDocument second = new PetDocument(2L, "Rabi", MONKEY, 4, "Jack", Instant.now(), Instant.now(), 0L);
+        PetPosition after = new PetPosition(PetFilter.Order.AGE, 2, 7L);
+        when(petStore.search(filter, after, Limit.of(2)))
+                .thenReturn(List.of(petDocument.toPetResponse(), second.toPetResponse()));
+
+        PetSliceResponse slice = petService.searchPets(filter, PetCursor.encode(after), 1);
+
+        assertThat(slice.content()).hasSize(1);
+        assertThat(PetCursor.decode(slice.next(), PetFilter.Order.AGE))
+                .isEqualTo(PetPosition.of(PetFilter.Order.AGE, petDocument.toPetResponse()));
+        assertThatThrownBy(() -> petService.searchPets(filter, PetCursor.encode(1L), 1))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    public void searchPets_Without_Indexed_Filter_KO() {
+        assertThatThrownBy(() -> new PetFilter(null, null, 1, 5, null, null, null, null))
+                .isInstanceOf(ValidationException.class);
     }
 
     @Test
     public void deletePet_OK() {
-        when(petRepository.findById(1L)).thenReturn(Optional.of(petDocument));
-        doNothing().when(petRepository).delete(any());
+        when(petStore.findById(1L)).thenReturn(Optional.of(petDocument));
+        doNothing().when(petStore).delete(any());
+
+        petService.deletePet(1L);
+        verify(petStore).delete(petDocument);
+        verify(petStats).deleted(petDocument.toPetResponse());
+    }
+
+    @Test
+    public void deletePet_Retries_After_Concurrent_Update() {
+        PetDocument updated = new PetDocument(1L, "Tom", MONKEY, 3, "Khan", Instant.now(), Instant.now(), 1L);
+        when(petStore.findById(1L)).thenReturn(Optional.of(petDocument)).thenReturn(Optional.of(updated));
+        doThrow(new ObjectOptimisticLockingFailureException(PetDocument.class, 1L)).when(petStore).delete(petDocument);
 
         petService.deletePet(1L);
-        verify(petRepository).delete(petDocument);
+
+        verify(petStore).delete(updated);
+        verify(petStats).deleted(updated.toPetResponse());
+        verify(petStats, never()).deleted(petDocument.toPetResponse());
     }
 
     @Test
     public void deletePet_NOT_Found_KO() {
-        when(petRepository.findById(1L)).thenReturn(Optional.empty());
+        when(petStore.findById(1L)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> petService.deletePet(1L))
                 .isInstanceOf(PetNotFoundException.class);
     }
+
+    @Test
+    public void getPetsAfter_OK() {
+        PetDocument second = new PetDocument(2L, "Rabi", RABBIT, 4, "Jack", Instant.now(), Instant.now(), 0L);
+        when(petStore.findResponsesAfter(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(petDocument.toPetResponse(), second.toPetResponse()));
+
+        PetSliceResponse result = petService.getPetsAfter(null, 1);
+
+        assertThat(result.content()).hasSize(1);
+        assertThat(result.content().get(0).name()).isEqualTo("Tommy");
+        assertThat(result.next()).isEqualTo(PetCursor.encode(1L));
+        verify(petStore).findResponsesAfter(0L, Limit.of(2));
+    }
+
+    @Test
+    public void getPetsAfter_LastSlice_OK() {
+        when(petStore.findResponsesAfter(eq(1L), any(Limit.class)))
+                .thenReturn(List.of());
+
+        PetSliceResponse result = petService.getPetsAfter(PetCursor.encode(1L), 10);
+
+        assertThat(result.content()).isEmpty();
+        assertThat(result.next()).isNull();
+    }
+
+    @Test
+    public void getPetsAfter_Invalid_Cursor_KO() {
+        assertThatThrownBy(() -> petService.getPetsAfter("not-a-cursor", 10))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    public void createPets_OK() {
+        PetRequest other = new PetRequest("Rabi", RABBIT, 4, "Jack");
+        when(petStore.findByNaturalKeys(any())).thenReturn(List.of(petDocument));
+        when(petStore.saveAllAndFlush(ArgumentMatchers.<PetDocument>anyIterable())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<PetBatchResult> results = petService.createPets(List.of(petRequest, other, other));
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).status()).isEqualTo(409);
+        assertThat(results.get(0).error().getErrorCode()).isEqualTo(ErrorCode.ALREADY_EXIST_ERROR);
+        assertThat(results.get(1).status()).isEqualTo(200);
+        assertThat(results.get(1).pet().name()).isEqualTo("Rabi");
+        assertThat(results.get(2).status()).isEqualTo(409);
+        verify(petStore, times(1)).saveAllAndFlush(ArgumentMatchers.<Iterable<PetDocument>>argThat(pets -> ((Collection<PetDocument>) pets).size() == 1));
+        verify(petStore).findByNaturalKeys(Set.of(PetKey.of(petRequest), PetKey.of(other)));
+    }
+
+    @Test
+    public void createPets_Concurrent_Duplicate_Only_Fails_That_Pet() {
+        PetRequest other = new PetRequest("Rabi", RABBIT, 4, "Jack");
+        var violation = new org.hibernate.exception.ConstraintViolationException("duplicate", null, "insert",
+                org.hibernate.exception.ConstraintViolationException.ConstraintKind.UNIQUE, PetDocument.NATURAL_KEY_CONSTRAINT);
+        // Tommy is created by another request between the check and the insert of the first attempt
+        when(petStore.findByNaturalKeys(any())).thenReturn(List.of()).thenReturn(List.of(petDocument));
+        when(petStore.saveAllAndFlush(ArgumentMatchers.<PetDocument>anyIterable()))
+                .thenThrow(new DataIntegrityViolationException("duplicate", violation))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<PetBatchResult> results = petService.createPets(List.of(petRequest, other));
+
+        assertThat(results).extracting(PetBatchResult::status).containsExactly(409, 200);
+        verify(transactionManager, times(2)).getTransaction(any());
+        verify(transactionManager).rollback(any());
+        verify(petStats).created(argThat(pet -> pet.species() == RABBIT));
+        verify(petStats, never()).created(argThat(pet -> pet.species() == MONKEY));
+    }
+
+    @Test
+    public void createPets_Empty_KO() {
+        assertThatThrownBy(() -> petService.createPets(List.of()))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    public void getPetVersion_From_Cache_OK() {
+        ConcurrentMapCache cache = new ConcurrentMapCache(PetServiceImpl.PETS_CACHE);
+        cache.put(1L, petDocument.toPetResponse());
+        when(cacheManager.getCache(PetServiceImpl.PETS_CACHE)).thenReturn(cache);
+
+        assertThat(petService.getPetVersion(1L)).isEqualTo(new PetVersion(0L, petDocument.getLastModified()));
+        verify(petStore, never()).findVersionById(any());
+    }
+
+    @Test
+    public void getPetVersion_From_Repository_OK() {
+        PetVersion version = new PetVersion(0L, petDocument.getLastModified());
+        when(cacheManager.getCache(PetServiceImpl.PETS_CACHE)).thenReturn(new ConcurrentMapCache(PetServiceImpl.PETS_CACHE));
+        when(petStore.findVersionById(1L)).thenReturn(Optional.of(version));
+
+        assertThat(petService.getPetVersion(1L)).isEqualTo(version);
+    }
+
+    @Test
+    public void getPets_Reads_Only_Cache_Misses_OK() {
+        ConcurrentMapCache cache = new ConcurrentMapCache(PetServiceImpl.PETS_CACHE);
+        cache.put(1L, petDocument.toPetResponse());
+        when(cacheManager.getCache(PetServiceImpl.PETS_CACHE)).thenReturn(cache);
+        PetResponse other = new PetResponse(2L, "Lilli", RABBIT, 1, "Khan", Instant.now(), Instant.now(), 0L);
+        when(petStore.findResponsesByIdIn(List.of(3L, 2L))).thenReturn(List.of(other));
+
+        PetLookupResponse response = petService.getPets(List.of(3L, 1L, 2L, 1L));
+
+        assertThat(response.content()).extracting(PetResponse::id).containsExactly(1L, 2L);
+        assertThat(response.missingIds()).containsExactly(3L);
+        assertThat(cache.get(2L, PetResponse.class)).isEqualTo(other);
+        verify(petStore).findResponsesByIdIn(List.of(3L, 2L));
+    }
+
+    @Test
+    public void getPetVersion_NOT_Found_KO() {
+        when(petStore.findVersionById(1L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> petService.getPetVersion(1L))
+                .isInstanceOf(PetNotFoundException.class);
+    }
 }
@@ -0,0 +1,109 @@
+package com.mdotm.pets.service;
+
+import com.mdotm.pets.dao.PetStore;
+import com.mdotm.pets.model.OwnerCount;
+import com.mdotm.pets.model.PetResponse;
+import com.mdotm.pets.model.PetStatsResponse;
+import com.mdotm.pets.model.Species;
+import com.mdotm.pets.model.SpeciesCount;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.mdotm.pets.model.Species.CAT;
+import static com.mdotm.pets.model.Species.DOG;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PetStatsTest {
+
+    @Test
+    public void counters_Follow_Writes() {
+        PetStats stats = new PetStats(mock(PetStore.class), 2);
+
+        stats.created(pet(CAT, "Mike"));
+        stats.created(pet(CAT, "Mike"));
+        stats.created(pet(DOG, "Jack"));
+        stats.created(pet(DOG, "Anna"));
+        stats.created(pet(DOG, null));
+        stats.deleted(pet(CAT, "Mike"));
+        stats.changed(pet(DOG, "Anna"), pet(CAT, "Jack"));
+
+        PetStatsResponse snapshot = stats.snapshot();
+        assertThat(snapshot.total()).isEqualTo(4);
+        assertThat(snapshot.species().get(CAT)).isEqualTo(2);
+        assertThat(snapshot.species().get(DOG)).isEqualTo(2);
+        assertThat(snapshot.topOwners()).containsExactly(new OwnerCount("Jack", 2), new OwnerCount("Mike", 1));
+    }
+
+    @Test
+    public void counters_Are_Exact_Under_Concurrent_Writes() throws Exception {
+        PetStats stats = new PetStats(mock(PetStore.class), 10);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 8; i++) {
+                executor.submit(() -> {
+                    for (int j = 0; j < 10_000; j++) {
+                        stats.created(pet(DOG, "Mike"));
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(stats.snapshot().total()).isEqualTo(80_000);
+        assertThat(stats.snapshot().species().get(DOG)).isEqualTo(80_000);
+        assertThat(stats.snapshot().topOwners()).containsExactly(new OwnerCount("Mike", 80_000));
+    }
+
+    @Test
+    public void reconcile_Replaces_Counters_With_Database_Counts() {
+        PetStore petStore = mock(PetStore.class);
+        when(petStore.countBySpecies()).thenReturn(List.of(new SpeciesCount(CAT, 5), new SpeciesCount(DOG, 2)));
+        when(petStore.findTopOwners(Limit.of(10 * PetStats.TRACKED_PER_TOP_OWNER))).thenReturn(List.of(new OwnerCount("Mike", 4), new OwnerCount("Jack", 1)));
+        PetStats stats = new PetStats(petStore, 10);
+        stats.created(pet(CAT, "Anna"));
+        stats.created(pet(CAT, "Jack"));
+
+        stats.reconcile();
+
+        PetStatsResponse snapshot = stats.snapshot();
+        assertThat(snapshot.total()).isEqualTo(7);
+        assertThat(snapshot.species().get(CAT)).isEqualTo(5);
+        assertThat(snapshot.species().get(DOG)).isEqualTo(2);
+        assertThat(snapshot.topOwners()).containsExactly(new OwnerCount("Mike", 4), new OwnerCount("Jack", 1));
+        assertThat(snapshot.reconciledAt()).isNotNull();
+    }
+
+    @Test
+    public void only_A_Bounded_Set_Of_Owners_Is_Counted() {
+        PetStore petStore = mock(PetStore.class);
+        PetStats stats = new PetStats(petStore, 1);
+        for (int i = 0; i < PetStats.TRACKED_PER_TOP_OWNER; i++) {
+            stats.created(pet(CAT, "owner-" + i));
+        }
+        stats.created(pet(CAT, "Mike"));
+        stats.created(pet(CAT, "Mike"));
+
+        assertThat(stats.snapshot().topOwners()).containsExactly(new OwnerCount("owner-0", 1));
+
+        when(petStore.findTopOwners(Limit.of(PetStats.TRACKED_PER_TOP_OWNER)))
+                .thenReturn(List.of(new OwnerCount("Mike", 2), new OwnerCount("owner-0", 1)));
+        stats.reconcile();
+        stats.created(pet(CAT, "Mike"));
+
+        assertThat(stats.snapshot().topOwners()).containsExactly(new OwnerCount("Mike", 3));
+    }
+
+    private static PetResponse pet(Species species, String ownerName) {
+        return new PetResponse(1L, "lilli", species, 3, ownerName, Instant.EPOCH, Instant.EPOCH, 0L);
+    }
+}